@@ -24,12 +24,20 @@
 
 package com.bombardier.plugin;
 
+import hudson.Extension;
 import hudson.model.Build;
+import hudson.model.Executor;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 
+import com.bombardier.plugin.reservation.NodeReservations;
+import com.bombardier.plugin.utils.FilePathUtils;
+
 /**
  * Used to build the project.
  * 
@@ -52,4 +60,62 @@ public class DTBuild extends Build<DTJob, DTBuild> implements
 	public DTJob getTestJob() {
 		return project;
 	}
+
+	/**
+	 * Used to hand the {@link Node}s reserved at the admission of a queued
+	 * {@link DTBuild} over to the build when it starts, and to release them
+	 * as soon as it completes, whatever the way, so that the next queued
+	 * build can start right away. The test packets in progress are killed by
+	 * the build itself when it's interrupted.
+	 * 
+	 * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+	 * @since 1.1
+	 */
+	@Extension
+	public static class ReservationListener extends RunListener<DTBuild> {
+
+		public ReservationListener() {
+			super(DTBuild.class);
+		}
+
+		@Override
+		public void onStarted(DTBuild build, TaskListener listener) {
+			Executor executor = Executor.currentExecutor();
+			if (executor != null && executor.getCurrentWorkUnit() != null) {
+				NodeReservations.claim(build,
+						executor.getCurrentWorkUnit().context.item.getId());
+			}
+		}
+
+		@Override
+		public void onCompleted(DTBuild build, TaskListener listener) {
+			NodeReservations.release(build);
+		}
+	}
+
+	/**
+	 * Used to delete the folder of a {@link DTBuild} in the workspace of its
+	 * building {@link Node}, once the build, including its post-build steps
+	 * reading the collected statistics, has completed. Otherwise every build
+	 * would leave its folder behind.
+	 * 
+	 * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+	 * @since 1.1
+	 */
+	@Extension
+	public static class WorkspaceCleaner extends RunListener<DTBuild> {
+
+		public WorkspaceCleaner() {
+			super(DTBuild.class);
+		}
+
+		@Override
+		public void onCompleted(DTBuild build, TaskListener listener) {
+			try {
+				FilePathUtils.deleteBuildFolderFromWS(build);
+			} catch (Exception e) {
+				e.printStackTrace(listener.getLogger());
+			}
+		}
+	}
 }
@@ -38,12 +38,18 @@ import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
 import jenkins.model.Jenkins;
 
+import com.bombardier.plugin.reservation.NodeReservations;
+
 /**
  * Used to schedule a dump build on the used Slave {@link Node}s to lock them.
  * 
  * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
  * @since 1.0
+ * @deprecated since 1.1 the executors are reserved in memory by the
+ *             {@link NodeReservations}; kept so that the locking projects
+ *             created by a previous version still load
  */
+@Deprecated
 public class DTDumbBuilder extends Builder {
 
 	@Extension
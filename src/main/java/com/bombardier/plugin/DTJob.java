@@ -40,6 +40,7 @@ import com.bombardier.plugin.utils.FilePathUtils;
 
 import hudson.Extension;
 import hudson.FilePath;
+import hudson.model.Item;
 import hudson.model.ItemGroup;
 import hudson.model.Node;
 import hudson.model.Project;
@@ -64,6 +65,15 @@ public class DTJob extends Project<DTJob, DTBuild> implements
 	@Extension
 	public static final TestJobDescriptor DESCRIPTOR = new TestJobDescriptor();
 
+	private static final String DEFAULT_TIMEOUT_MULTIPLIER = "3";
+	private static final String DEFAULT_TIMEOUT_FLOOR = "300";
+	private static final String DEFAULT_TEST_RETRIES = "0";
+	private static final String DEFAULT_MIN_NODES = "2";
+	private static final String DEFAULT_ADMISSION_TIMEOUT = "600";
+	private static final String DEFAULT_TARGET_DURATION = "0";
+	private static final String DEFAULT_SHARE_WEIGHT = "1";
+	private static final String DEFAULT_PRIORITY = "0";
+
 	private String testCaseList = "";
 	private String testListIsRelOrAbs = "0";
 
@@ -74,6 +84,23 @@ public class DTJob extends Project<DTJob, DTBuild> implements
 	
 	private String statisticsFile = "";
 
+	private String timeoutMultiplier = DEFAULT_TIMEOUT_MULTIPLIER;
+	private String timeoutFloor = DEFAULT_TIMEOUT_FLOOR;
+
+	private boolean failFast;
+
+	private String testRetries = DEFAULT_TEST_RETRIES;
+
+	private boolean queueDispatch;
+
+	private String minNodes = DEFAULT_MIN_NODES;
+	private String admissionTimeout = DEFAULT_ADMISSION_TIMEOUT;
+
+	private String targetDuration = DEFAULT_TARGET_DURATION;
+
+	private String shareWeight = DEFAULT_SHARE_WEIGHT;
+	private String priority = DEFAULT_PRIORITY;
+
 	@DataBoundConstructor
 	public DTJob(@SuppressWarnings("rawtypes") ItemGroup parent, String name) {
 		super(parent, name);
@@ -149,6 +176,237 @@ public class DTJob extends Project<DTJob, DTBuild> implements
 		return statisticsFile;
 	}
 
+	/**
+	 * Used to get the input value from the field 'timeoutMultiplier' - the
+	 * multiple of the 99th percentile of a test case's execution times used
+	 * as its timeout. '0' disables the timeouts.
+	 * 
+	 * @return the multiplier
+	 * @since 1.1
+	 */
+	public String getTimeoutMultiplier() {
+		return (timeoutMultiplier != null) ? timeoutMultiplier
+				: DEFAULT_TIMEOUT_MULTIPLIER;
+	}
+
+	/**
+	 * Used to get the timeout multiplier as a number, or its default if the
+	 * input value isn't valid.
+	 * 
+	 * @return the multiplier
+	 * @since 1.1
+	 */
+	public double getTimeoutMultiplierValue() {
+		return toNumber(getTimeoutMultiplier(), DEFAULT_TIMEOUT_MULTIPLIER);
+	}
+
+	/**
+	 * Used to get the input value from the field 'timeoutFloor' - the minimum
+	 * timeout of a test case in seconds.
+	 * 
+	 * @return the floor
+	 * @since 1.1
+	 */
+	public String getTimeoutFloor() {
+		return (timeoutFloor != null) ? timeoutFloor : DEFAULT_TIMEOUT_FLOOR;
+	}
+
+	/**
+	 * Used to get the minimum timeout of a test case as a number, or its
+	 * default if the input value isn't valid.
+	 * 
+	 * @return the floor in seconds
+	 * @since 1.1
+	 */
+	public double getTimeoutFloorValue() {
+		return toNumber(getTimeoutFloor(), DEFAULT_TIMEOUT_FLOOR);
+	}
+
+	/**
+	 * Used to get the input value from the field 'failFast', which specifies
+	 * if the testing should stop on the first failed test case.
+	 * 
+	 * @return true if fail-fast
+	 * @since 1.1
+	 */
+	public boolean isFailFast() {
+		return failFast;
+	}
+
+	/**
+	 * Used to get the input value from the field 'testRetries' - the number
+	 * of times the failed test cases are retried after the main pass.
+	 * 
+	 * @return the number of retries
+	 * @since 1.1
+	 */
+	public String getTestRetries() {
+		return (testRetries != null) ? testRetries : DEFAULT_TEST_RETRIES;
+	}
+
+	/**
+	 * Used to get the number of retries as a number, or its default if the
+	 * input value isn't valid. A negative number means no retries.
+	 * 
+	 * @return the number of retries
+	 * @since 1.1
+	 */
+	public int getTestRetriesValue() {
+		return Math.max((int) toNumber(getTestRetries(), DEFAULT_TEST_RETRIES),
+				0);
+	}
+
+	/**
+	 * Used to get the input value from the field 'queueDispatch', which
+	 * specifies if the test packets should be dispatched as tasks of the
+	 * Jenkins build queue instead of directly to the reserved Slave Nodes.
+	 * 
+	 * @return true if dispatched through the build queue
+	 * @since 1.1
+	 */
+	public boolean isQueueDispatch() {
+		return queueDispatch;
+	}
+
+	/**
+	 * Used to get the input value from the field 'minNodes' - the number of
+	 * free Slave Nodes a queued build waits for before it starts.
+	 * 
+	 * @return the minimum number of free Slave Nodes
+	 * @since 1.1
+	 */
+	public String getMinNodes() {
+		return (minNodes != null) ? minNodes : DEFAULT_MIN_NODES;
+	}
+
+	/**
+	 * Used to get the minimum number of free Slave Nodes as a number, or its
+	 * default if the input value isn't valid.
+	 * 
+	 * @return the minimum number of free Slave Nodes
+	 * @since 1.1
+	 */
+	public int getMinNodesValue() {
+		return (int) toNumber(getMinNodes(), DEFAULT_MIN_NODES);
+	}
+
+	/**
+	 * Used to get the input value from the field 'admissionTimeout' - the
+	 * time, in seconds, a queued build waits for the minimum number of free
+	 * Slave Nodes, before it starts with the free ones.
+	 * 
+	 * @return the admission timeout
+	 * @since 1.1
+	 */
+	public String getAdmissionTimeout() {
+		return (admissionTimeout != null) ? admissionTimeout
+				: DEFAULT_ADMISSION_TIMEOUT;
+	}
+
+	/**
+	 * Used to get the admission timeout as a number, or its default if the
+	 * input value isn't valid.
+	 * 
+	 * @return the admission timeout in seconds
+	 * @since 1.1
+	 */
+	public long getAdmissionTimeoutValue() {
+		return (long) toNumber(getAdmissionTimeout(), DEFAULT_ADMISSION_TIMEOUT);
+	}
+
+	/**
+	 * Used to get the input value from the field 'targetDuration' - the
+	 * time, in seconds, the testing should take. If the estimated execution
+	 * time exceeds it, extra Slave Nodes are requested from the clouds.
+	 * 
+	 * @return the target duration, 0 if no Slave Nodes are provisioned
+	 * @since 1.1
+	 */
+	public String getTargetDuration() {
+		return (targetDuration != null) ? targetDuration
+				: DEFAULT_TARGET_DURATION;
+	}
+
+	/**
+	 * Used to get the target duration as a number, or its default if the
+	 * input value isn't valid.
+	 * 
+	 * @return the target duration in seconds
+	 * @since 1.1
+	 */
+	public double getTargetDurationValue() {
+		return toNumber(getTargetDuration(), DEFAULT_TARGET_DURATION);
+	}
+
+	/**
+	 * Used to get the input value from the field 'shareWeight' - the weight
+	 * of the job's builds when the Slave Nodes of the label are shared with
+	 * the concurrent builds of other jobs.
+	 * 
+	 * @return the share weight
+	 * @since 1.1
+	 */
+	public String getShareWeight() {
+		return (shareWeight != null) ? shareWeight : DEFAULT_SHARE_WEIGHT;
+	}
+
+	/**
+	 * Used to get the share weight as a number, or its default if the input
+	 * value isn't valid.
+	 * 
+	 * @return the share weight
+	 * @since 1.1
+	 */
+	public double getShareWeightValue() {
+		return toNumber(getShareWeight(), DEFAULT_SHARE_WEIGHT);
+	}
+
+	/**
+	 * Used to get the input value from the field 'priority' - a queued build
+	 * may reclaim the Slave Nodes of the running builds of jobs with a lower
+	 * priority.
+	 * 
+	 * @return the priority
+	 * @since 1.1
+	 */
+	public String getPriority() {
+		return (priority != null) ? priority : DEFAULT_PRIORITY;
+	}
+
+	/**
+	 * Used to get the priority as a number, or its default if the input value
+	 * isn't valid.
+	 * 
+	 * @return the priority
+	 * @since 1.1
+	 */
+	public int getPriorityValue() {
+		return (int) toNumber(getPriority(), DEFAULT_PRIORITY);
+	}
+
+	/**
+	 * Used to convert the input value of a numeric field. The form
+	 * validation only warns about invalid values, so they are still saved,
+	 * e.g. blank ones, and are replaced by the default of the field.
+	 * 
+	 * @param value
+	 *            the input value
+	 * @param defaultValue
+	 *            the default value of the field
+	 * @return the number
+	 */
+	private static double toNumber(String value, String defaultValue) {
+		try {
+			double number = Double.parseDouble(value.trim());
+			if (!Double.isNaN(number) && !Double.isInfinite(number)) {
+				return number;
+			}
+		} catch (NumberFormatException e) {
+			// use the default
+		}
+		return Double.parseDouble(defaultValue);
+	}
+
 	/**
 	 * Used to persist the configuration form upon submission.
 	 * 
@@ -189,10 +447,68 @@ public class DTJob extends Project<DTJob, DTBuild> implements
 				if (viewObject.has(key)) {
 					this.statisticsFile = viewObject.getString(key);
 				}
+				key = "timeoutMultiplier";
+				if (viewObject.has(key)) {
+					this.timeoutMultiplier = viewObject.getString(key);
+				}
+				key = "timeoutFloor";
+				if (viewObject.has(key)) {
+					this.timeoutFloor = viewObject.getString(key);
+				}
+				key = "failFast";
+				if (viewObject.has(key)) {
+					this.failFast = viewObject.getBoolean(key);
+				}
+				key = "testRetries";
+				if (viewObject.has(key)) {
+					this.testRetries = viewObject.getString(key);
+				}
+				key = "queueDispatch";
+				if (viewObject.has(key)) {
+					this.queueDispatch = viewObject.getBoolean(key);
+				}
+				key = "minNodes";
+				if (viewObject.has(key)) {
+					this.minNodes = viewObject.getString(key);
+				}
+				key = "admissionTimeout";
+				if (viewObject.has(key)) {
+					this.admissionTimeout = viewObject.getString(key);
+				}
+				key = "targetDuration";
+				if (viewObject.has(key)) {
+					this.targetDuration = viewObject.getString(key);
+				}
+				key = "shareWeight";
+				if (viewObject.has(key)) {
+					this.shareWeight = viewObject.getString(key);
+				}
+				key = "priority";
+				if (viewObject.has(key)) {
+					this.priority = viewObject.getString(key);
+				}
 			}
 		}
 	}
 
+	/**
+	 * Used to migrate a job configured by a previous version, once it's
+	 * loaded - the publisher, which deleted the auto-generated projects
+	 * locking the executors, is removed, since the executors aren't locked by
+	 * projects any more.
+	 * 
+	 * @since 1.1
+	 */
+	@Override
+	@SuppressWarnings("deprecation")
+	public void onLoad(ItemGroup<? extends Item> parent, String name)
+			throws IOException {
+		super.onLoad(parent, name);
+		if (getPublishersList().get(DTPublisher.class) != null) {
+			getPublishersList().remove(DTPublisher.class);
+		}
+	}
+
 	@Override
 	protected Class<DTBuild> getBuildClass() {
 		return DTBuild.class;
@@ -387,6 +703,173 @@ public class DTJob extends Project<DTJob, DTBuild> implements
 			return FormValidation.ok();
 		}
 		
+		/**
+		 * Used to validate the field that specifies the multiple of the 99th
+		 * percentile used as the timeout of a test case
+		 * 
+		 * @param value
+		 * @return
+		 * @throws IOException
+		 * @throws ServletException
+		 * @since 1.1
+		 */
+		public FormValidation doCheckTimeoutMultiplier(
+				@QueryParameter String value) throws IOException,
+				ServletException {
+			return checkNonNegativeNumber(value);
+		}
+
+		/**
+		 * Used to validate the field that specifies the minimum timeout of a
+		 * test case
+		 * 
+		 * @param value
+		 * @return
+		 * @throws IOException
+		 * @throws ServletException
+		 * @since 1.1
+		 */
+		public FormValidation doCheckTimeoutFloor(@QueryParameter String value)
+				throws IOException, ServletException {
+			return checkNonNegativeNumber(value);
+		}
+
+		/**
+		 * Used to validate the field that specifies the number of retries of
+		 * the failed test cases
+		 * 
+		 * @param value
+		 * @return
+		 * @throws IOException
+		 * @throws ServletException
+		 * @since 1.1
+		 */
+		public FormValidation doCheckTestRetries(@QueryParameter String value)
+				throws IOException, ServletException {
+			try {
+				if (Integer.parseInt(value) < 0) {
+					return FormValidation.error("Please set a non-negative number!");
+				}
+			} catch (NumberFormatException e) {
+				return FormValidation.error("Please set a whole number!");
+			}
+			return FormValidation.ok();
+		}
+
+		/**
+		 * Used to validate the field that specifies the minimum number of
+		 * free Slave Nodes to start a build
+		 * 
+		 * @param value
+		 * @return
+		 * @throws IOException
+		 * @throws ServletException
+		 * @since 1.1
+		 */
+		public FormValidation doCheckMinNodes(@QueryParameter String value)
+				throws IOException, ServletException {
+			try {
+				if (Integer.parseInt(value) < 2) {
+					return FormValidation.error("Please set a number not less than 2!");
+				}
+			} catch (NumberFormatException e) {
+				return FormValidation.error("Please set a whole number!");
+			}
+			return FormValidation.ok();
+		}
+
+		/**
+		 * Used to validate the field that specifies how long a build waits
+		 * for the minimum number of free Slave Nodes
+		 * 
+		 * @param value
+		 * @return
+		 * @throws IOException
+		 * @throws ServletException
+		 * @since 1.1
+		 */
+		public FormValidation doCheckAdmissionTimeout(
+				@QueryParameter String value) throws IOException,
+				ServletException {
+			try {
+				if (Long.parseLong(value) < 0) {
+					return FormValidation.error("Please set a non-negative number!");
+				}
+			} catch (NumberFormatException e) {
+				return FormValidation.error("Please set a whole number!");
+			}
+			return FormValidation.ok();
+		}
+
+		/**
+		 * Used to validate the field that specifies the target duration of
+		 * the testing
+		 * 
+		 * @param value
+		 * @return
+		 * @throws IOException
+		 * @throws ServletException
+		 * @since 1.1
+		 */
+		public FormValidation doCheckTargetDuration(
+				@QueryParameter String value) throws IOException,
+				ServletException {
+			return checkNonNegativeNumber(value);
+		}
+
+		/**
+		 * Used to validate the field that specifies the share weight of the
+		 * job's builds
+		 * 
+		 * @param value
+		 * @return
+		 * @throws IOException
+		 * @throws ServletException
+		 * @since 1.1
+		 */
+		public FormValidation doCheckShareWeight(@QueryParameter String value)
+				throws IOException, ServletException {
+			try {
+				if (Double.parseDouble(value) <= 0) {
+					return FormValidation.error("Please set a positive number!");
+				}
+			} catch (NumberFormatException e) {
+				return FormValidation.error("Please set a number!");
+			}
+			return FormValidation.ok();
+		}
+
+		/**
+		 * Used to validate the field that specifies the priority of the
+		 * job's builds
+		 * 
+		 * @param value
+		 * @return
+		 * @throws IOException
+		 * @throws ServletException
+		 * @since 1.1
+		 */
+		public FormValidation doCheckPriority(@QueryParameter String value)
+				throws IOException, ServletException {
+			try {
+				Integer.parseInt(value);
+			} catch (NumberFormatException e) {
+				return FormValidation.error("Please set a whole number!");
+			}
+			return FormValidation.ok();
+		}
+
+		private FormValidation checkNonNegativeNumber(String value) {
+			try {
+				if (Double.parseDouble(value) < 0) {
+					return FormValidation.error("Please set a non-negative number!");
+				}
+			} catch (NumberFormatException e) {
+				return FormValidation.error("Please set a number!");
+			}
+			return FormValidation.ok();
+		}
+
 		public String getDefaultEntriesPage(){
             return getViewPage(DTJob.class, "configure-entries.jelly");
 		}
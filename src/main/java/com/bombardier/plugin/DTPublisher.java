@@ -28,6 +28,7 @@ import java.io.IOException;
 import java.util.Set;
 
 import com.bombardier.plugin.misc.PrintMessages;
+import com.bombardier.plugin.reservation.NodeReservations;
 import com.bombardier.plugin.utils.NodeUtils;
 
 import hudson.Extension;
@@ -47,7 +48,11 @@ import hudson.tasks.Recorder;
  * 
  * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
  * @since 1.0
+ * @deprecated since 1.1 the executors are reserved in memory by the
+ *             {@link NodeReservations}; kept so that the jobs configured by
+ *             a previous version still load
  */
+@Deprecated
 public class DTPublisher extends Recorder {
 
 	@Extension
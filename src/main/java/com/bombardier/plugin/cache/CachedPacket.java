@@ -0,0 +1,132 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.cache;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlList;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import com.bombardier.plugin.scheduling.TestPacket;
+import com.bombardier.plugin.scheduling.TestTable;
+
+/**
+ * Represents a cached {@link TestPacket} - the indices of its test cases in
+ * the {@link TestTable} (and in the list of cached tests), the round it
+ * belongs to and its total EET.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+
+@XmlRootElement(name = "packet")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class CachedPacket {
+
+	@XmlAttribute(name = "round")
+	private int round;
+
+	@XmlAttribute(name = "total-eet")
+	private double totalEET;
+
+	@XmlList
+	@XmlElement(name = "tests")
+	private int[] indices;
+
+	/**
+	 * Default constructor - used to initialize some
+	 * of the variables.
+	 */
+	public CachedPacket() {
+		this.indices = new int[0];
+	}
+
+	/**
+	 * Used to initialize an instance of {@link CachedPacket}.
+	 * 
+	 * @param round
+	 *            the index of the round the packet belongs to
+	 * @param totalEET
+	 *            the total EET of the packet
+	 * @param indices
+	 *            the indices of the packet's test cases
+	 */
+	public CachedPacket(int round, double totalEET, int[] indices) {
+		this.round = round;
+		this.totalEET = totalEET;
+		this.indices = indices;
+	}
+
+	/**
+	 * Used to get the index of the round the packet belongs to
+	 * @return the round
+	 */
+	public int getRound() {
+		return round;
+	}
+
+	/**
+	 * Used to set the index of the round the packet belongs to
+	 * @param round the round
+	 */
+	public void setRound(int round) {
+		this.round = round;
+	}
+
+	/**
+	 * Used to get the total Estimated Execution Time (EET).
+	 * @return the EET
+	 */
+	public double getTotalEET() {
+		return totalEET;
+	}
+
+	/**
+	 * Used to set the total Estimated Execution Time (EET).
+	 * @param totalEET the total EET
+	 */
+	public void setTotalEET(double totalEET) {
+		this.totalEET = totalEET;
+	}
+
+	/**
+	 * Used to get the indices of the packet's test cases
+	 * @return the indices
+	 */
+	public int[] getIndices() {
+		return indices;
+	}
+
+	/**
+	 * Used to set the indices of the packet's test cases
+	 * @param indices the indices
+	 */
+	public void setIndices(int[] indices) {
+		this.indices = indices;
+	}
+}
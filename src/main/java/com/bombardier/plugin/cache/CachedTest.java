@@ -0,0 +1,193 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.cache;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Represents the metadata of a single test case file, recorded while
+ * scheduling, used to decide if a cached schedule is still valid.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+
+@XmlRootElement(name = "test")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class CachedTest {
+
+	@XmlAttribute(name = "path")
+	private String path;
+
+	@XmlAttribute(name = "modified")
+	private long modified;
+
+	@XmlElement(name = "size-in-bytes")
+	private long bytes;
+
+	@XmlElement(name = "number-of-lines")
+	private int lines;
+
+	@XmlElement(name = "estimated-execution-time")
+	private double eet;
+
+	@XmlElement(name = "content-hash")
+	private String hash;
+
+	/**
+	 * Default constructor.
+	 */
+	public CachedTest() {}
+
+	/**
+	 * Used to initialize an instance of {@link CachedTest} with the file
+	 * metadata of a test case.
+	 * 
+	 * @param path
+	 *            the absolute path to the test file
+	 * @param bytes
+	 *            the size of the file
+	 * @param modified
+	 *            the last modification time of the file
+	 */
+	public CachedTest(String path, long bytes, long modified) {
+		this.path = path;
+		this.bytes = bytes;
+		this.modified = modified;
+	}
+
+	/**
+	 * Used to check if the metadata describe the same, unmodified, file.
+	 * 
+	 * @param other
+	 *            the metadata to compare with
+	 * @return true if the path, size and modification time are equal
+	 */
+	public boolean isSameFile(CachedTest other) {
+		return other != null && path.equals(other.path)
+				&& bytes == other.bytes && modified == other.modified;
+	}
+
+	/**
+	 * Used to get the absolute path to the test file
+	 * @return the path
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Used to set the absolute path to the test file
+	 * @param path the path to be set
+	 */
+	public void setPath(String path) {
+		this.path = path;
+	}
+
+	/**
+	 * Used to get the last modification time of the test file
+	 * @return the modification time in milliseconds
+	 */
+	public long getModified() {
+		return modified;
+	}
+
+	/**
+	 * Used to set the last modification time of the test file
+	 * @param modified the modification time in milliseconds
+	 */
+	public void setModified(long modified) {
+		this.modified = modified;
+	}
+
+	/**
+	 * Used to get the number of bytes
+	 * @return the number of bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Used to set the number of bytes
+	 * @param bytes the number of bytes to be set
+	 */
+	public void setBytes(long bytes) {
+		this.bytes = bytes;
+	}
+
+	/**
+	 * Used to get the number of lines
+	 * @return the number of lines
+	 */
+	public int getLines() {
+		return lines;
+	}
+
+	/**
+	 * Used to set the number of lines
+	 * @param lines the number of lines to be set
+	 */
+	public void setLines(int lines) {
+		this.lines = lines;
+	}
+
+	/**
+	 * Used to get the Estimated execution time (EET)
+	 * @return the EET
+	 */
+	public double getEET() {
+		return eet;
+	}
+
+	/**
+	 * Used to set the Estimated execution time (EET)
+	 * @param eet the EET to be set
+	 */
+	public void setEET(double eet) {
+		this.eet = eet;
+	}
+
+	/**
+	 * Used to get the MD5 hash of the file contents
+	 * @return the hash as a hex string or null if unknown
+	 */
+	public String getHash() {
+		return hash;
+	}
+
+	/**
+	 * Used to set the MD5 hash of the file contents
+	 * @param hash the hash to be set
+	 */
+	public void setHash(String hash) {
+		this.hash = hash;
+	}
+}
@@ -0,0 +1,194 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.cache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+
+/**
+ * Used to persist the metadata of the test case files of a project between
+ * builds - the size, modification time, number of lines and content hash of
+ * each file. A file is rescanned only if its size or modification time
+ * changed. An instance is shared by all builds of a project, therefore the
+ * access to it is synchronized.
+ * <br />
+ * The metadata are kept in a map by path, in their order of addition. The
+ * list of the XML file is filled only while the cache is being saved.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+
+@XmlRootElement(name = "test-metadata")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class MetadataCache {
+
+	@XmlElement(name = "test")
+	private List<CachedTest> tests;
+
+	@XmlTransient
+	private final Map<String, CachedTest> testsByPath;
+
+	@XmlTransient
+	private boolean changed;
+
+	/**
+	 * Default constructor - used to initialize some
+	 * of the variables.
+	 */
+	public MetadataCache() {
+		this.testsByPath = new LinkedHashMap<String, CachedTest>();
+	}
+
+	/**
+	 * Used to get the metadata of a test file, if they are still valid.
+	 * 
+	 * @param path
+	 *            the absolute path to the test file
+	 * @param bytes
+	 *            the current size of the file
+	 * @param modified
+	 *            the current modification time of the file
+	 * @return the {@link CachedTest} or null if the file is unknown or was
+	 *         modified
+	 */
+	public synchronized CachedTest get(String path, long bytes, long modified) {
+		CachedTest test = testsByPath.get(path);
+		if (test != null && test.getBytes() == bytes
+				&& test.getModified() == modified) {
+			return test;
+		}
+		return null;
+	}
+
+	/**
+	 * Used to add, or replace, the metadata of a test file.
+	 * 
+	 * @param test
+	 *            the metadata to be put
+	 */
+	public synchronized void put(CachedTest test) {
+		testsByPath.put(test.getPath(), test);
+		changed = true;
+	}
+
+	/**
+	 * Used to remove the metadata of a test file.
+	 * 
+	 * @param path
+	 *            the absolute path to the test file
+	 */
+	public synchronized void remove(String path) {
+		if (testsByPath.remove(path) != null) {
+			changed = true;
+		}
+	}
+
+	/**
+	 * Used to remove the metadata of the test files that don't exist any
+	 * more. The cache is shared by all builds of a project, which may use
+	 * different test case lists, so a file missing from one list is kept as
+	 * long as it exists.
+	 * 
+	 * @param existing
+	 *            the paths known to exist, which are not checked again
+	 */
+	public synchronized void removeDeleted(Set<String> existing) {
+		Iterator<String> iterator = testsByPath.keySet().iterator();
+		while (iterator.hasNext()) {
+			String path = iterator.next();
+			if (!existing.contains(path) && !new File(path).isFile()) {
+				iterator.remove();
+				changed = true;
+			}
+		}
+	}
+
+	/**
+	 * Used to get the paths of all test files in the cache.
+	 * 
+	 * @return a copy of the paths
+	 */
+	public synchronized Set<String> getPaths() {
+		return new HashSet<String>(testsByPath.keySet());
+	}
+
+	/**
+	 * Used to check if the cache was changed since it was last saved.
+	 * 
+	 * @return true if it has to be saved
+	 */
+	public synchronized boolean isChanged() {
+		return changed;
+	}
+
+	/**
+	 * Used to mark the cache as saved.
+	 */
+	public synchronized void setSaved() {
+		this.changed = false;
+	}
+
+	/**
+	 * Called by JAXB to index the read metadata by path.
+	 */
+	private void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+		if (tests != null) {
+			for (CachedTest test : tests) {
+				testsByPath.put(test.getPath(), test);
+			}
+		}
+		tests = null;
+	}
+
+	/**
+	 * Called by JAXB to list the metadata to be written.
+	 */
+	private synchronized void beforeMarshal(Marshaller marshaller) {
+		tests = new ArrayList<CachedTest>(testsByPath.values());
+	}
+
+	/**
+	 * Called by JAXB to drop the written list.
+	 */
+	private synchronized void afterMarshal(Marshaller marshaller) {
+		tests = null;
+	}
+}
@@ -0,0 +1,168 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import com.bombardier.plugin.scheduling.EETEstimator;
+
+/**
+ * Used to persist the last computed schedule of a project together with the
+ * fingerprint of the test case list and the stamp of the testing history it
+ * was estimated from. When both match, the schedule is reused as it is. Once
+ * the history changes, the EETs of the cached test cases are estimated again
+ * while their packets are kept.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+
+@XmlRootElement(name = "schedule-cache")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ScheduleCache {
+
+	@XmlAttribute(name = "fingerprint")
+	private String fingerprint;
+
+	@XmlAttribute(name = "estimator-version")
+	private int estimatorVersion;
+
+	@XmlAttribute(name = "nodes")
+	private int numOfNodes;
+
+	@XmlAttribute(name = "history")
+	private String historyStamp;
+
+	@XmlElement(name = "test")
+	private List<CachedTest> tests;
+
+	@XmlElement(name = "packet")
+	private List<CachedPacket> packets;
+
+	/**
+	 * Default constructor - used to initialize some
+	 * of the variables.
+	 */
+	public ScheduleCache() {
+		this.tests = new ArrayList<CachedTest>();
+		this.packets = new ArrayList<CachedPacket>();
+		this.estimatorVersion = EETEstimator.VERSION;
+	}
+
+	/**
+	 * Used to check if the cached schedule was computed for exactly the same
+	 * test case list, files and number of Slave nodes.
+	 * 
+	 * @param fingerprint
+	 *            the fingerprint of the current test case list
+	 * @return true if the schedule can be reused as it is
+	 */
+	public boolean isValidFor(String fingerprint) {
+		return estimatorVersion == EETEstimator.VERSION
+				&& fingerprint.equals(this.fingerprint);
+	}
+
+	/**
+	 * Used to check if the EETs of the cached schedule were estimated from
+	 * the current testing history.
+	 * 
+	 * @param historyStamp
+	 *            the stamp of the current testing history
+	 * @return true if the cached EETs are still valid
+	 */
+	public boolean isEstimatedWith(String historyStamp) {
+		return historyStamp.equals(this.historyStamp);
+	}
+
+	/**
+	 * Used to check if the cached schedule was computed with the current
+	 * estimation model and for the same number of Slave nodes, which are the
+	 * preconditions for repairing it.
+	 * 
+	 * @param numOfNodes
+	 *            the current number of Slave nodes
+	 * @return true if the schedule can be repaired
+	 */
+	public boolean isRepairableFor(int numOfNodes) {
+		return estimatorVersion == EETEstimator.VERSION
+				&& this.numOfNodes == numOfNodes && !packets.isEmpty();
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public void setFingerprint(String fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
+	public String getHistoryStamp() {
+		return historyStamp;
+	}
+
+	public void setHistoryStamp(String historyStamp) {
+		this.historyStamp = historyStamp;
+	}
+
+	public int getEstimatorVersion() {
+		return estimatorVersion;
+	}
+
+	public void setEstimatorVersion(int estimatorVersion) {
+		this.estimatorVersion = estimatorVersion;
+	}
+
+	public int getNumOfNodes() {
+		return numOfNodes;
+	}
+
+	public void setNumOfNodes(int numOfNodes) {
+		this.numOfNodes = numOfNodes;
+	}
+
+	public List<CachedTest> getTests() {
+		return tests;
+	}
+
+	public void setTests(List<CachedTest> tests) {
+		this.tests = tests;
+	}
+
+	public List<CachedPacket> getPackets() {
+		return packets;
+	}
+
+	public void setPackets(List<CachedPacket> packets) {
+		this.packets = packets;
+	}
+}
@@ -0,0 +1,444 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.cache;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Item;
+import hudson.model.listeners.ItemListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+import com.bombardier.plugin.DTBuilder;
+import com.bombardier.plugin.DTJob;
+import com.bombardier.plugin.scheduling.TestScanner;
+import com.bombardier.plugin.scheduling.TestTable;
+import com.bombardier.plugin.utils.CacheUtils;
+import com.bombardier.plugin.utils.FilePathUtils;
+import com.bombardier.plugin.utils.LineCounter;
+
+/**
+ * Used to keep the {@link MetadataCache}s of the projects up to date between
+ * builds. The directories of the test case list and of the test files of each
+ * project are watched with a {@link WatchService}, on a single background
+ * thread, and every created, modified or deleted test file is rescanned as
+ * soon as it changes. A modification of the test case list itself causes the
+ * whole project to be indexed again. The indexer is enabled in the global
+ * configuration of the {@link DTBuilder}.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class TestIndexer implements Runnable {
+
+	private static final Logger LOGGER = Logger.getLogger(TestIndexer.class
+			.getName());
+
+	/**
+	 * The time, in seconds, without file events after which the changed
+	 * caches are saved.
+	 */
+	private static final long QUIET_PERIOD = 1;
+
+	private static TestIndexer instance;
+
+	private final WatchService watchService;
+	private final Thread thread;
+	private final ConcurrentLinkedQueue<String> jobsToBeIndexed = new ConcurrentLinkedQueue<String>();
+	private final Map<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+	private final Map<Path, WatchKey> watchKeys = new HashMap<Path, WatchKey>();
+	private final Map<Path, Set<String>> jobsByDirectory = new HashMap<Path, Set<String>>();
+	private final Map<String, Path> listFiles = new HashMap<String, Path>();
+	private final Map<String, Set<String>> testsByJob = new HashMap<String, Set<String>>();
+	private final Set<String> changedJobs = new HashSet<String>();
+	private final LineCounter counter = new LineCounter(true);
+
+	/**
+	 * Used to initialize an instance of the {@link TestIndexer}.
+	 * 
+	 * @throws IOException
+	 */
+	private TestIndexer() throws IOException {
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.thread = new Thread(this, "Distributed testing - test indexer");
+		this.thread.setDaemon(true);
+	}
+
+	/**
+	 * Used to start the indexer, if it's enabled, after the projects are
+	 * loaded.
+	 * 
+	 * @since 1.1
+	 */
+	@Initializer(after = InitMilestone.JOB_LOADED)
+	public static void init() {
+		if (DTBuilder.DESCRIPTOR.isBackgroundIndexing()) {
+			start();
+		}
+	}
+
+	/**
+	 * Used to start the indexer and index all projects, if it's not already
+	 * running.
+	 * 
+	 * @since 1.1
+	 */
+	public static synchronized void start() {
+		if (instance != null) {
+			return;
+		}
+		try {
+			instance = new TestIndexer();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to watch the test files", e);
+			return;
+		}
+		for (DTJob job : Jenkins.getInstance().getAllItems(DTJob.class)) {
+			instance.jobsToBeIndexed.add(job.getName());
+		}
+		instance.thread.start();
+	}
+
+	/**
+	 * Used to stop the indexer, if it's running.
+	 * 
+	 * @since 1.1
+	 */
+	public static synchronized void stop() {
+		if (instance == null) {
+			return;
+		}
+		try {
+			instance.watchService.close();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Unable to stop the test indexer", e);
+		}
+		instance.thread.interrupt();
+		instance = null;
+	}
+
+	/**
+	 * Used to request the indexing of a project, if the indexer is running.
+	 * 
+	 * @param jobName
+	 *            the name of the project
+	 * @since 1.1
+	 */
+	public static synchronized void reindex(String jobName) {
+		if (instance != null) {
+			instance.jobsToBeIndexed.add(jobName);
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				indexRequestedJobs();
+				WatchKey key = watchService.poll(QUIET_PERIOD,
+						TimeUnit.SECONDS);
+				if (key != null) {
+					processEvents(key);
+				} else {
+					saveChangedJobs();
+				}
+			}
+		} catch (InterruptedException e) {
+			// stopped
+		} catch (ClosedWatchServiceException e) {
+			// stopped
+		}
+		saveChangedJobs();
+	}
+
+	/**
+	 * Used to index the projects which indexing was requested.
+	 */
+	private void indexRequestedJobs() {
+		String jobName;
+		while ((jobName = jobsToBeIndexed.poll()) != null) {
+			try {
+				indexJob(jobName);
+			} catch (Exception e) {
+				LOGGER.log(Level.WARNING, "Unable to index the test files of "
+						+ jobName, e);
+			}
+		}
+	}
+
+	/**
+	 * Used to scan the test files of a project, which are not in its
+	 * {@link MetadataCache} yet, and to watch their directories.
+	 * 
+	 * @param jobName
+	 *            the name of the project
+	 * @throws Exception
+	 */
+	private void indexJob(String jobName) throws Exception {
+		unwatchJob(jobName);
+		DTJob job = getJob(jobName);
+		if (job == null || job.getTestCaseList() == null
+				|| job.getTestCaseList().isEmpty()) {
+			return;
+		}
+
+		FilePath listFile = FilePathUtils.getPathToMainTestList(job);
+		Path listPath = Paths.get(listFile.getRemote());
+		listFiles.put(jobName, listPath);
+		watchDirectory(jobName, listPath.getParent());
+		if (!listFile.exists()) {
+			return;
+		}
+
+		List<String> listOfTests = FilePathUtils.readTextFileByLines(listFile);
+		FilePath base = listFile.getParent();
+		TestTable table = new TestTable(null, listOfTests.size());
+		Set<String> tests = new HashSet<String>(listOfTests.size() * 2);
+		for (String testPath : listOfTests) {
+			String path = new FilePath(base, testPath).getRemote();
+			table.add(path, 0, 0);
+			tests.add(path);
+		}
+		TestScanner.stat(table);
+		TestScanner.scan(table, CacheUtils.getMetadataCache(jobName));
+
+		testsByJob.put(jobName, tests);
+		for (String path : tests) {
+			watchDirectory(jobName, Paths.get(path).getParent());
+		}
+		changedJobs.add(jobName);
+	}
+
+	/**
+	 * Used to handle the file events of a watched directory.
+	 * 
+	 * @param key
+	 *            the {@link WatchKey} of the directory
+	 */
+	private void processEvents(WatchKey key) {
+		Path directory = directories.get(key);
+		Set<String> jobs = (directory != null) ? jobsByDirectory
+				.get(directory) : null;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (jobs == null) {
+				continue;
+			}
+			if (event.kind() == OVERFLOW) {
+				jobsToBeIndexed.addAll(jobs);
+				continue;
+			}
+			Path file = directory.resolve((Path) event.context());
+			for (String jobName : jobs) {
+				if (file.equals(listFiles.get(jobName))) {
+					jobsToBeIndexed.add(jobName);
+				} else if (testsByJob.containsKey(jobName)
+						&& testsByJob.get(jobName).contains(file.toString())) {
+					indexTest(jobName, file);
+				}
+			}
+		}
+		if (!key.reset() && directory != null) {
+			directories.remove(key);
+			watchKeys.remove(directory);
+		}
+	}
+
+	/**
+	 * Used to rescan a single created, modified or deleted test file.
+	 * 
+	 * @param jobName
+	 *            the name of the project
+	 * @param file
+	 *            the test file
+	 */
+	private void indexTest(String jobName, Path file) {
+		try {
+			MetadataCache metadata = CacheUtils.getMetadataCache(jobName);
+			String path = file.toString();
+			File testFile = file.toFile();
+			if (!testFile.isFile()) {
+				metadata.remove(path);
+			} else if (metadata.get(path, testFile.length(),
+					testFile.lastModified()) == null) {
+				CachedTest test = new CachedTest(path, testFile.length(),
+						testFile.lastModified());
+				test.setLines(counter.count(file));
+				test.setHash(counter.getHash());
+				metadata.put(test);
+			}
+			changedJobs.add(jobName);
+		} catch (Exception e) {
+			LOGGER.log(Level.FINE, "Unable to index the test file " + file, e);
+		}
+	}
+
+	/**
+	 * Used to save the {@link MetadataCache}s changed since the last save.
+	 */
+	private void saveChangedJobs() {
+		Iterator<String> iterator = changedJobs.iterator();
+		while (iterator.hasNext()) {
+			String jobName = iterator.next();
+			try {
+				CacheUtils.saveMetadataCache(jobName,
+						CacheUtils.getMetadataCache(jobName));
+			} catch (Exception e) {
+				LOGGER.log(Level.WARNING, "Unable to save the test metadata of "
+						+ jobName, e);
+			}
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Used to watch a directory on behalf of a project.
+	 * 
+	 * @param jobName
+	 *            the name of the project
+	 * @param directory
+	 *            the directory
+	 * @throws IOException
+	 */
+	private void watchDirectory(String jobName, Path directory)
+			throws IOException {
+		if (directory == null || !directory.toFile().isDirectory()) {
+			return;
+		}
+		if (!watchKeys.containsKey(directory)) {
+			WatchKey key = directory.register(watchService, ENTRY_CREATE,
+					ENTRY_MODIFY, ENTRY_DELETE);
+			directories.put(key, directory);
+			watchKeys.put(directory, key);
+			jobsByDirectory.put(directory, new HashSet<String>());
+		}
+		jobsByDirectory.get(directory).add(jobName);
+	}
+
+	/**
+	 * Used to stop watching the directories of a project, which aren't
+	 * watched on behalf of other projects.
+	 * 
+	 * @param jobName
+	 *            the name of the project
+	 */
+	private void unwatchJob(String jobName) {
+		listFiles.remove(jobName);
+		testsByJob.remove(jobName);
+		Iterator<Map.Entry<Path, Set<String>>> iterator = jobsByDirectory
+				.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Path, Set<String>> entry = iterator.next();
+			if (entry.getValue().remove(jobName) && entry.getValue().isEmpty()) {
+				WatchKey key = watchKeys.remove(entry.getKey());
+				if (key != null) {
+					key.cancel();
+					directories.remove(key);
+				}
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Used to find a project by its name.
+	 * 
+	 * @param jobName
+	 *            the name of the project
+	 * @return the project or null if it doesn't exist any more
+	 */
+	private static DTJob getJob(String jobName) {
+		for (DTJob job : Jenkins.getInstance().getAllItems(DTJob.class)) {
+			if (job.getName().equals(jobName)) {
+				return job;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Used to index a project again when it's created, configured or renamed.
+	 * 
+	 * @since 1.1
+	 */
+	@Extension
+	public static class JobListener extends ItemListener {
+
+		@Override
+		public void onCreated(Item item) {
+			if (item instanceof DTJob) {
+				reindex(item.getName());
+			}
+		}
+
+		@Override
+		public void onUpdated(Item item) {
+			if (item instanceof DTJob) {
+				reindex(item.getName());
+			}
+		}
+
+		@Override
+		public void onDeleted(Item item) {
+			if (item instanceof DTJob) {
+				reindex(item.getName());
+			}
+		}
+
+		@Override
+		public void onRenamed(Item item, String oldName, String newName) {
+			if (item instanceof DTJob) {
+				reindex(oldName);
+				reindex(newName);
+			}
+		}
+	}
+}
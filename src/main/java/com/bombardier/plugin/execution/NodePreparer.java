@@ -0,0 +1,190 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.execution;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Node;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.bombardier.plugin.misc.PrintMessages;
+import com.bombardier.plugin.utils.FilePathUtils;
+
+/**
+ * Used to prepare the Slave {@link Node}s for the testing in parallel, while
+ * the test cases are being scheduled. The project folders on each
+ * {@link Node} are created or cleaned, the target script is staged there and
+ * a {@link RemoteRunner} is set up, once per build. The dispatching of a
+ * test packet to a {@link Node} waits only for the preparation of that
+ * {@link Node}.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class NodePreparer {
+
+	/**
+	 * The maximum number of {@link Node}s prepared at the same time. Can be
+	 * overridden with the system property
+	 * "com.bombardier.plugin.execution.NodePreparer.parallelism".
+	 */
+	public static final int PARALLELISM = Math.max(1, Integer.getInteger(
+			NodePreparer.class.getName() + ".parallelism", 8));
+
+	private final AbstractBuild<?, ?> build;
+	private final String shellCommands;
+	private final ExecutorService executor;
+	private final Map<Node, Future<RemoteRunner>> preparations = new ConcurrentHashMap<Node, Future<RemoteRunner>>();
+
+	/**
+	 * Used to initialize an instance of the {@link NodePreparer} and start
+	 * the preparation of the {@link Node}s.
+	 * 
+	 * @param build
+	 *            the current build
+	 * @param nodes
+	 *            the {@link Node}s to be prepared
+	 * @param shellCommands
+	 *            the shell commands executing a test packet
+	 */
+	public NodePreparer(AbstractBuild<?, ?> build, Set<Node> nodes,
+			String shellCommands) {
+		this.build = build;
+		this.shellCommands = shellCommands;
+		this.executor = Executors.newFixedThreadPool(
+				Math.max(1, Math.min(PARALLELISM, nodes.size())),
+				new NamingThreadFactory(new DaemonThreadFactory(),
+						"Distributed testing - node preparation"));
+		for (Node node : nodes) {
+			add(node);
+		}
+	}
+
+	/**
+	 * Used to start the preparation of a {@link Node}, e.g. one joining the
+	 * testing during the build. A {@link Node} lost and joining again is
+	 * prepared anew.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @since 1.1
+	 */
+	public void add(final Node node) {
+		preparations.put(node, executor.submit(new Callable<RemoteRunner>() {
+			@Override
+			public RemoteRunner call() throws Exception {
+				return prepare(node, build, shellCommands);
+			}
+		}));
+	}
+
+	/**
+	 * Used to wait until a {@link Node} is prepared.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @return the {@link RemoteRunner} of the {@link Node}
+	 * @throws Exception
+	 *             the error thrown while preparing the {@link Node}
+	 * @since 1.1
+	 */
+	public RemoteRunner awaitNode(Node node) throws Exception {
+		Future<RemoteRunner> preparation = preparations.get(node);
+		if (preparation == null) {
+			throw new IllegalStateException(node.getDisplayName()
+					+ " is not prepared");
+		}
+		try {
+			return preparation.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Used to stop the {@link RemoteRunner}s and the preparation threads, and
+	 * to delete the build's folders on the {@link Node}s.
+	 * 
+	 * @since 1.1
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+		for (Map.Entry<Node, Future<RemoteRunner>> preparation : preparations
+				.entrySet()) {
+			try {
+				if (preparation.getValue().isDone()
+						&& !preparation.getValue().isCancelled()) {
+					preparation.getValue().get().stop();
+				}
+			} catch (Exception e) {
+				// the node failed to prepare or is not reachable any more
+			}
+			try {
+				FilePathUtils.deleteProjectFoldersOnNode(preparation.getKey(),
+						build);
+			} catch (Exception e) {
+				// the node is not reachable any more
+			}
+		}
+	}
+
+	/**
+	 * Used to prepare a single {@link Node}.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @param build
+	 *            the current build
+	 * @param shellCommands
+	 *            the shell commands executing a test packet
+	 * @return the started {@link RemoteRunner}
+	 * @throws Exception
+	 */
+	private static RemoteRunner prepare(Node node, AbstractBuild<?, ?> build,
+			String shellCommands) throws Exception {
+		FilePathUtils.createProjectFoldersOnNode(node, build);
+
+		// Copy the target script to the node, it's the same for all packets
+		if (!FilePathUtils.copyFileToNode(node, FilePathUtils
+				.getPathToTargetScript(build), FilePathUtils
+				.getPathToTestProjectWorkspaceOnNode(node, build).getRemote())) {
+			throw PrintMessages.throwPreBuildInfoErrorCopyFiles(node);
+		}
+		return RemoteRunner.start(node, build, shellCommands);
+	}
+}
@@ -0,0 +1,139 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.execution;
+
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import hudson.slaves.ComputerListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import jenkins.util.Timer;
+
+/**
+ * Used to notify the running {@link TestDispatcher}s when a {@link Node} may
+ * have become free - a {@link Computer} came online or a build completed -
+ * so that the {@link Node} can join their testing.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class NodeWatcher {
+
+	/**
+	 * The delay, in seconds, of the notification after a build completed,
+	 * for its executor to be released.
+	 */
+	private static final long RUN_COMPLETED_DELAY = 5;
+
+	private static final Set<TestDispatcher> DISPATCHERS = new LinkedHashSet<TestDispatcher>();
+
+	/**
+	 * Used to start notifying a {@link TestDispatcher}.
+	 * 
+	 * @param dispatcher
+	 *            the {@link TestDispatcher}
+	 */
+	public static synchronized void register(TestDispatcher dispatcher) {
+		DISPATCHERS.add(dispatcher);
+	}
+
+	/**
+	 * Used to stop notifying a {@link TestDispatcher}.
+	 * 
+	 * @param dispatcher
+	 *            the {@link TestDispatcher}
+	 */
+	public static synchronized void unregister(TestDispatcher dispatcher) {
+		DISPATCHERS.remove(dispatcher);
+	}
+
+	/**
+	 * Used to get the registered {@link TestDispatcher}s, i.e. the ones of
+	 * the running builds.
+	 * 
+	 * @return the {@link TestDispatcher}s
+	 */
+	public static synchronized List<TestDispatcher> getDispatchers() {
+		return new ArrayList<TestDispatcher>(DISPATCHERS);
+	}
+
+	/**
+	 * Used to notify all registered {@link TestDispatcher}s.
+	 */
+	private static void notifyDispatchers() {
+		for (TestDispatcher dispatcher : getDispatchers()) {
+			dispatcher.nodeAvailable();
+		}
+	}
+
+	/**
+	 * Used to notify the {@link TestDispatcher}s of a {@link Computer} coming
+	 * online.
+	 * 
+	 * @since 1.1
+	 */
+	@Extension
+	public static class OnlineListener extends ComputerListener {
+
+		@Override
+		public void onOnline(Computer computer, TaskListener listener) {
+			notifyDispatchers();
+		}
+	}
+
+	/**
+	 * Used to notify the {@link TestDispatcher}s of a completed build, shortly
+	 * after it released its executor.
+	 * 
+	 * @since 1.1
+	 */
+	@Extension
+	public static class CompletionListener extends RunListener<Run<?, ?>> {
+
+		@Override
+		public void onCompleted(Run<?, ?> run, TaskListener listener) {
+			synchronized (NodeWatcher.class) {
+				if (DISPATCHERS.isEmpty()) {
+					return;
+				}
+			}
+			Timer.get().schedule(new Runnable() {
+				@Override
+				public void run() {
+					notifyDispatchers();
+				}
+			}, RUN_COMPLETED_DELAY, TimeUnit.SECONDS);
+		}
+	}
+}
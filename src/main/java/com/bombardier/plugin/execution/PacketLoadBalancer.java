@@ -0,0 +1,154 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.execution;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.model.Node;
+import hudson.model.Queue;
+import hudson.model.Queue.Task;
+import hudson.model.LoadBalancer;
+import hudson.model.queue.MappingWorksheet;
+import hudson.model.queue.MappingWorksheet.ExecutorChunk;
+import hudson.model.queue.MappingWorksheet.Mapping;
+import hudson.model.queue.MappingWorksheet.WorkChunk;
+import jenkins.model.Jenkins;
+
+import com.bombardier.plugin.reservation.NodeScorer;
+import com.bombardier.plugin.scheduling.TestPacket;
+
+/**
+ * Used to assign the {@link PacketTask}s in the build queue to the executors
+ * of the {@link Node}s reserved for their builds. Of the free ones, the
+ * {@link Node} with the least estimated execution time assigned so far is
+ * chosen, so the {@link TestPacket}s are balanced by their EET, and a
+ * retried {@link TestPacket} avoids the {@link Node} where it failed. The
+ * other tasks are assigned by the original {@link LoadBalancer}.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class PacketLoadBalancer extends LoadBalancer {
+
+	private final LoadBalancer fallback;
+
+	/**
+	 * Used to initialize an instance of the {@link PacketLoadBalancer}.
+	 * 
+	 * @param fallback
+	 *            the {@link LoadBalancer} of the other tasks
+	 */
+	public PacketLoadBalancer(LoadBalancer fallback) {
+		this.fallback = fallback;
+	}
+
+	@Override
+	public Mapping map(Task task, MappingWorksheet worksheet) {
+		if (!(task instanceof PacketTask)) {
+			return fallback.map(task, worksheet);
+		}
+		PacketTask packetTask = (PacketTask) task;
+		TestDispatcher dispatcher = packetTask.getDispatcher();
+		TestPacket tp = packetTask.getTestPacket();
+		WorkChunk work = worksheet.works(0);
+
+		ExecutorChunk best = null;
+		for (ExecutorChunk chunk : worksheet.executors) {
+			if (!chunk.canAccept(work)
+					|| !dispatcher.canExecuteOn(chunk.node, tp)) {
+				continue;
+			}
+			if (best == null || isBetter(dispatcher, tp, chunk.node, best.node)) {
+				best = chunk;
+			}
+		}
+		if (best == null) {
+			// Wait until a reserved node becomes free
+			return null;
+		}
+
+		Mapping mapping = worksheet.new Mapping();
+		mapping.assign(0, best);
+		if (!mapping.isCompletelyValid()) {
+			return null;
+		}
+		dispatcher.assign(best.node, tp);
+		return mapping;
+	}
+
+	/**
+	 * Used to compare two candidate {@link Node}s for a {@link TestPacket}.
+	 * 
+	 * @param dispatcher
+	 *            the {@link TestDispatcher} of the {@link TestPacket}
+	 * @param tp
+	 *            the {@link TestPacket}
+	 * @param node
+	 *            the first {@link Node}
+	 * @param other
+	 *            the second {@link Node}
+	 * @return true if the first {@link Node} should be preferred
+	 */
+	private boolean isBetter(TestDispatcher dispatcher, TestPacket tp,
+			Node node, Node other) {
+		boolean avoided = dispatcher.isAvoided(node, tp);
+		if (avoided != dispatcher.isAvoided(other, tp)) {
+			return !avoided;
+		}
+		return getFinishTime(dispatcher, tp, node) < getFinishTime(dispatcher,
+				tp, other);
+	}
+
+	/**
+	 * Used to estimate when a {@link Node} would finish a {@link TestPacket}
+	 * after the ones already assigned to it, given its speed.
+	 * 
+	 * @param dispatcher
+	 *            the {@link TestDispatcher} of the {@link TestPacket}
+	 * @param tp
+	 *            the {@link TestPacket}
+	 * @param node
+	 *            the {@link Node}
+	 * @return the estimated time in seconds
+	 */
+	private double getFinishTime(TestDispatcher dispatcher, TestPacket tp,
+			Node node) {
+		return (dispatcher.getAssignedEET(node) + tp.getTotalEET())
+				* NodeScorer.getSpeedFactor(node);
+	}
+
+	/**
+	 * Used to install the {@link PacketLoadBalancer} in front of the
+	 * {@link LoadBalancer} of the build queue.
+	 */
+	@Initializer(after = InitMilestone.JOB_LOADED)
+	public static void install() {
+		Queue queue = Jenkins.getInstance().getQueue();
+		if (!(queue.getLoadBalancer() instanceof PacketLoadBalancer)) {
+			queue.setLoadBalancer(new PacketLoadBalancer(queue
+					.getLoadBalancer()));
+		}
+	}
+}
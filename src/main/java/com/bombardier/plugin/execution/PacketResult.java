@@ -0,0 +1,122 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.execution;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents the result of the execution of a test packet on a Slave node,
+ * as returned by the {@link RemoteRunner} - the exit code of the testing
+ * process and the outcome of each executed test case.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class PacketResult implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int exitCode;
+	private final List<TestOutcome> outcomes;
+	private final boolean timedOut;
+
+	public PacketResult(int exitCode, List<TestOutcome> outcomes) {
+		this(exitCode, outcomes, false);
+	}
+
+	/**
+	 * Used to initialize an instance of the {@link PacketResult}.
+	 * 
+	 * @param exitCode
+	 *            the exit code of the testing process
+	 * @param outcomes
+	 *            the outcome of each executed test case
+	 * @param timedOut
+	 *            true if the testing process was killed because it exceeded
+	 *            the timeout of the test packet
+	 * @since 1.1
+	 */
+	public PacketResult(int exitCode, List<TestOutcome> outcomes,
+			boolean timedOut) {
+		this.exitCode = exitCode;
+		this.outcomes = (outcomes != null) ? outcomes
+				: new ArrayList<TestOutcome>();
+		this.timedOut = timedOut;
+	}
+
+	public int getExitCode() {
+		return exitCode;
+	}
+
+	public List<TestOutcome> getOutcomes() {
+		return outcomes;
+	}
+
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+
+	/**
+	 * Represents the outcome of a single test case.
+	 * 
+	 * @since 1.1
+	 */
+	public static class TestOutcome implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String name;
+		private final String className;
+		private final double time;
+		private final boolean passed;
+
+		public TestOutcome(String name, String className, double time,
+				boolean passed) {
+			this.name = name;
+			this.className = className;
+			this.time = time;
+			this.passed = passed;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getClassName() {
+			return className;
+		}
+
+		public double getTime() {
+			return time;
+		}
+
+		public boolean isPassed() {
+			return passed;
+		}
+	}
+}
@@ -0,0 +1,319 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.execution;
+
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.model.Node;
+import hudson.remoting.VirtualChannel;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jenkins.MasterToSlaveFileCallable;
+
+import com.bombardier.plugin.scheduling.TempTest;
+import com.bombardier.plugin.scheduling.TestPacket;
+import com.bombardier.plugin.utils.FilePathUtils;
+
+/**
+ * Used to transfer the files of the likely next {@link TestPacket} of a
+ * {@link Node} while its current {@link TestPacket} is executed. The files
+ * are copied to a staging folder inside the project folder on the
+ * {@link Node} and, when the {@link TestPacket} is dispatched, they are
+ * moved in place with atomic renames. A {@link Node} reserves the
+ * {@link TestPacket} being prefetched for it, and the prefetch is discarded
+ * if the {@link TestPacket} is dispatched to another {@link Node}.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class PacketStager {
+
+	private static final String STAGING_FOLDER = ".staging";
+
+	private final AbstractBuild<?, ?> build;
+	private final ExecutorService executor;
+	private final Map<Node, Staging> stagings = new HashMap<Node, Staging>();
+	private int numOfStagings;
+
+	/**
+	 * Used to initialize an instance of the {@link PacketStager}.
+	 * 
+	 * @param build
+	 *            the current build
+	 * @param numOfNodes
+	 *            the number of {@link Node}s
+	 */
+	public PacketStager(AbstractBuild<?, ?> build, int numOfNodes) {
+		this.build = build;
+		this.executor = Executors.newFixedThreadPool(
+				Math.max(1, Math.min(NodePreparer.PARALLELISM, numOfNodes)),
+				new NamingThreadFactory(new DaemonThreadFactory(),
+						"Distributed testing - packet staging"));
+	}
+
+	/**
+	 * Used to start the transfer of the files of a {@link TestPacket} to the
+	 * staging folder of a {@link Node}. A previous prefetch for the
+	 * {@link Node} is discarded.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @param testPacket
+	 *            the {@link TestPacket} likely to be executed next on the
+	 *            {@link Node}
+	 * @since 1.1
+	 */
+	public void prefetch(final Node node, final TestPacket testPacket) {
+		discard(node);
+		final String directory = FilePathUtils
+				.getPathToTestProjectWorkspaceOnNode(node, build).getRemote()
+				+ "/" + STAGING_FOLDER + "/" + (numOfStagings++);
+		Future<Boolean> transfer = executor.submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws Exception {
+				boolean copied = true;
+				for (TempTest tempTest : testPacket.getTests()) {
+					copied &= FilePathUtils.copyFileToNode(node,
+							tempTest.getTestFile(), directory + "/tests");
+				}
+				return copied
+						&& FilePathUtils.copyFileToNode(node,
+								testPacket.getTestList(), directory);
+			}
+		});
+		stagings.put(node, new Staging(testPacket, new FilePath(node
+				.getChannel(), directory), transfer));
+	}
+
+	/**
+	 * Used to get the {@link TestPacket} being prefetched for a {@link Node}.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @return the {@link TestPacket} or null if there is no prefetch
+	 * @since 1.1
+	 */
+	public TestPacket getPrefetched(Node node) {
+		Staging staging = stagings.get(node);
+		return (staging != null) ? staging.testPacket : null;
+	}
+
+	/**
+	 * Used to get the {@link Node} for which a {@link TestPacket} is being
+	 * prefetched.
+	 * 
+	 * @param testPacket
+	 *            the {@link TestPacket}
+	 * @return the {@link Node} or null if it's not prefetched
+	 * @since 1.1
+	 */
+	public Node getReservingNode(TestPacket testPacket) {
+		for (Entry<Node, Staging> entry : stagings.entrySet()) {
+			if (entry.getValue().testPacket == testPacket) {
+				return entry.getKey();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Used to move the prefetched files of a {@link TestPacket} in place on
+	 * a {@link Node}. A transfer still in progress is abandoned rather than
+	 * waited for, since the dispatching of the other idle {@link Node}s would
+	 * wait as well.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @param testPacket
+	 *            the {@link TestPacket} to be dispatched
+	 * @return true if the files are in place, false if they weren't
+	 *         prefetched in time and have to be copied
+	 * @throws IOException
+	 *             if the files failed to be moved in place, the staging folder
+	 *             is discarded then
+	 * @throws Exception
+	 * @since 1.1
+	 */
+	public boolean commit(Node node, TestPacket testPacket) throws Exception {
+		Staging staging = stagings.get(node);
+		if (staging == null || staging.testPacket != testPacket) {
+			return false;
+		}
+		stagings.remove(node);
+		if (!staging.transfer.isDone()) {
+			staging.transfer.cancel(true);
+			delete(staging.directory);
+			return false;
+		}
+		try {
+			if (!staging.transfer.get()) {
+				delete(staging.directory);
+				return false;
+			}
+		} catch (ExecutionException e) {
+			delete(staging.directory);
+			return false;
+		}
+		try {
+			return staging.directory.act(new MoveInPlace(FilePathUtils
+					.getPathToTestProjectWorkspaceOnNode(node, build)
+					.getRemote()));
+		} catch (IOException e) {
+			delete(staging.directory);
+			throw e;
+		}
+	}
+
+	/**
+	 * Used to discard the prefetch for a {@link Node}, if there is one.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @since 1.1
+	 */
+	public void discard(Node node) {
+		Staging staging = stagings.remove(node);
+		if (staging != null) {
+			staging.transfer.cancel(true);
+			delete(staging.directory);
+		}
+	}
+
+	/**
+	 * Used to discard all prefetches and stop the transfer threads. The
+	 * staging folders are still deleted in the background, in parallel.
+	 * 
+	 * @since 1.1
+	 */
+	public void shutdown() {
+		for (Staging staging : stagings.values()) {
+			staging.transfer.cancel(true);
+			delete(staging.directory);
+		}
+		stagings.clear();
+		executor.shutdown();
+	}
+
+	/**
+	 * Used to delete a staging folder in the background.
+	 * 
+	 * @param directory
+	 *            the staging folder
+	 */
+	private void delete(final FilePath directory) {
+		executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				directory.deleteRecursive();
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Represents the prefetch of a {@link TestPacket} for a {@link Node}.
+	 */
+	private static class Staging {
+
+		private final TestPacket testPacket;
+		private final FilePath directory;
+		private final Future<Boolean> transfer;
+
+		private Staging(TestPacket testPacket, FilePath directory,
+				Future<Boolean> transfer) {
+			this.testPacket = testPacket;
+			this.directory = directory;
+			this.transfer = transfer;
+		}
+	}
+
+	/**
+	 * Used to move the files of a staging folder to the project folder, on
+	 * the {@link Node}, and delete the staging folder.
+	 */
+	private static class MoveInPlace extends MasterToSlaveFileCallable<Boolean> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String projectFolder;
+
+		private MoveInPlace(String projectFolder) {
+			this.projectFolder = projectFolder;
+		}
+
+		@Override
+		public Boolean invoke(File staging, VirtualChannel channel)
+				throws IOException, InterruptedException {
+			File project = new File(projectFolder);
+			File stagedTests = new File(staging, "tests");
+			File[] tests = stagedTests.listFiles();
+			if (tests != null) {
+				File projectTests = new File(project, "tests");
+				projectTests.mkdirs();
+				for (File test : tests) {
+					move(test.toPath(), new File(projectTests, test.getName())
+							.toPath());
+				}
+			}
+			File[] files = staging.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					if (file.isFile()) {
+						move(file.toPath(), new File(project, file.getName())
+								.toPath());
+					}
+				}
+			}
+			new FilePath(staging).deleteRecursive();
+			return true;
+		}
+
+		private static void move(Path source, Path target) throws IOException {
+			try {
+				Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+	}
+}
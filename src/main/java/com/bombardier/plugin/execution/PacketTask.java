@@ -0,0 +1,209 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.execution;
+
+import hudson.model.AbstractProject;
+import hudson.model.Executor;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.model.Queue;
+import hudson.model.ResourceList;
+import hudson.model.queue.AbstractQueueTask;
+import hudson.model.queue.CauseOfBlockage;
+import hudson.model.queue.SubTask;
+
+import java.io.IOException;
+
+import org.acegisecurity.AccessDeniedException;
+
+import com.bombardier.plugin.scheduling.TestPacket;
+
+/**
+ * Represents a {@link TestPacket} of a build as a task of the Jenkins build
+ * queue. The queue assigns it to an executor of a reserved Slave
+ * {@link Node}, chosen by the {@link PacketLoadBalancer}, and the executor
+ * runs the {@link TestPacket} through the {@link TestDispatcher}, so it is
+ * shown in the build queue and occupies the executor while it runs. The
+ * task is owned by the project of the build, so it may run on the
+ * {@link Node}s reserved for it.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class PacketTask extends AbstractQueueTask {
+
+	private final TestDispatcher dispatcher;
+	private final AbstractProject<?, ?> project;
+	private final TestPacket testPacket;
+	private final int number;
+
+	/**
+	 * Used to initialize an instance of the {@link PacketTask}.
+	 * 
+	 * @param dispatcher
+	 *            the {@link TestDispatcher} of the build
+	 * @param project
+	 *            the project of the build
+	 * @param testPacket
+	 *            the {@link TestPacket}
+	 * @param number
+	 *            the number of the {@link TestPacket} within the build
+	 */
+	public PacketTask(TestDispatcher dispatcher, AbstractProject<?, ?> project,
+			TestPacket testPacket, int number) {
+		this.dispatcher = dispatcher;
+		this.project = project;
+		this.testPacket = testPacket;
+		this.number = number;
+	}
+
+	public TestDispatcher getDispatcher() {
+		return dispatcher;
+	}
+
+	public TestPacket getTestPacket() {
+		return testPacket;
+	}
+
+	@Override
+	public boolean isBuildBlocked() {
+		return false;
+	}
+
+	@Override
+	public String getWhyBlocked() {
+		return null;
+	}
+
+	@Override
+	public CauseOfBlockage getCauseOfBlockage() {
+		return null;
+	}
+
+	@Override
+	public String getName() {
+		return project.getName() + " - test packet " + number;
+	}
+
+	@Override
+	public String getFullDisplayName() {
+		return project.getFullDisplayName() + " - test packet " + number;
+	}
+
+	@Override
+	public String getDisplayName() {
+		return getFullDisplayName();
+	}
+
+	@Override
+	public void checkAbortPermission() throws AccessDeniedException {
+		project.checkAbortPermission();
+	}
+
+	@Override
+	public boolean hasAbortPermission() {
+		return project.hasAbortPermission();
+	}
+
+	@Override
+	public String getUrl() {
+		return project.getUrl();
+	}
+
+	/**
+	 * Used to get the {@link Label} of the task - none, the
+	 * {@link PacketLoadBalancer} restricts it to the reserved {@link Node}s.
+	 */
+	@Override
+	public Label getAssignedLabel() {
+		return null;
+	}
+
+	@Override
+	public Node getLastBuiltOn() {
+		return null;
+	}
+
+	/**
+	 * Used to get the estimated execution time of the {@link TestPacket}.
+	 * 
+	 * @return the estimated execution time in milliseconds
+	 */
+	@Override
+	public long getEstimatedDuration() {
+		return (long) (testPacket.getTotalEET() * 1000);
+	}
+
+	@Override
+	public Queue.Executable createExecutable() throws IOException {
+		return new PacketExecutable(this);
+	}
+
+	@Override
+	public Queue.Task getOwnerTask() {
+		return project;
+	}
+
+	@Override
+	public ResourceList getResourceList() {
+		return ResourceList.EMPTY;
+	}
+
+	/**
+	 * Used to execute a {@link PacketTask} on the {@link Node} of the
+	 * executor, which took it from the build queue.
+	 * 
+	 * @since 1.1
+	 */
+	private static class PacketExecutable implements Queue.Executable {
+
+		private final PacketTask task;
+
+		public PacketExecutable(PacketTask task) {
+			this.task = task;
+		}
+
+		@Override
+		public SubTask getParent() {
+			return task;
+		}
+
+		@Override
+		public void run() {
+			Node node = Executor.currentExecutor().getOwner().getNode();
+			task.dispatcher.executeTask(node, task.testPacket);
+		}
+
+		@Override
+		public long getEstimatedDuration() {
+			return task.getEstimatedDuration();
+		}
+
+		@Override
+		public String toString() {
+			return task.getFullDisplayName();
+		}
+	}
+}
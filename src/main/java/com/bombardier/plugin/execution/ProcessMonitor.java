@@ -0,0 +1,227 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.execution;
+
+import hudson.model.Node;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.bombardier.plugin.scheduling.TestPacket;
+
+/**
+ * Used to deliver the completion of the remote testing processes as events.
+ * A waiter thread waits for the result of each started process and puts a
+ * {@link Completion} in a queue, so that the dispatching thread can simply
+ * block until the next {@link Node} becomes free, without polling. The
+ * dispatching thread can also be woken up by other events, e.g. when another
+ * {@link Node} becomes available.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class ProcessMonitor {
+
+	private final ExecutorService waiters;
+	private final BlockingQueue<Completion> completions = new LinkedBlockingQueue<Completion>();
+	private int running;
+
+	/**
+	 * Used to initialize an instance of the {@link ProcessMonitor}.
+	 */
+	public ProcessMonitor() {
+		// One waiter per running process, the number of nodes may grow
+		this.waiters = Executors.newCachedThreadPool(new NamingThreadFactory(
+				new DaemonThreadFactory(),
+				"Distributed testing - process waiter"));
+	}
+
+	/**
+	 * Used to wait for the completion of a process in the background.
+	 * 
+	 * @param node
+	 *            the {@link Node} on which the process runs
+	 * @param execution
+	 *            the {@link RemoteExecution} of the process
+	 * @param testPacket
+	 *            the {@link TestPacket} being executed by the process
+	 * @since 1.1
+	 */
+	public void watch(final Node node, final RemoteExecution execution,
+			final TestPacket testPacket) {
+		running++;
+		waiters.submit(new Runnable() {
+			@Override
+			public void run() {
+				PacketResult packetResult = null;
+				Exception error = null;
+				try {
+					packetResult = execution.join();
+				} catch (Exception e) {
+					error = e;
+				}
+				completions.add(new Completion(node, testPacket,
+						packetResult, error));
+			}
+		});
+	}
+
+	/**
+	 * Used to expect the completion of a process started by another thread,
+	 * which reports it through {@link #complete(Completion)}.
+	 * 
+	 * @since 1.1
+	 */
+	public void expect() {
+		running++;
+	}
+
+	/**
+	 * Used to report the completion of an expected process.
+	 * 
+	 * @param completion
+	 *            the {@link Completion} of the process
+	 * @since 1.1
+	 */
+	public void complete(Completion completion) {
+		completions.add(completion);
+	}
+
+	/**
+	 * Used to stop expecting a process, which will never be started.
+	 * 
+	 * @since 1.1
+	 */
+	public void forget() {
+		running--;
+	}
+
+	/**
+	 * Used to wake up the thread waiting for the next process, with a
+	 * {@link Completion} without a {@link TestPacket}.
+	 * 
+	 * @since 1.1
+	 */
+	public void wakeUp() {
+		completions.add(new Completion(null, null, null, null));
+	}
+
+	/**
+	 * Used to wait for the next process to complete.
+	 * 
+	 * @return the {@link Completion} of the process
+	 * @throws InterruptedException
+	 * @since 1.1
+	 */
+	public Completion take() throws InterruptedException {
+		Completion completion = completions.take();
+		if (!completion.isWakeUp()) {
+			running--;
+		}
+		return completion;
+	}
+
+	/**
+	 * Used to get the number of processes which completion hasn't been
+	 * taken yet.
+	 * 
+	 * @return the number of running processes
+	 */
+	public int getRunning() {
+		return running;
+	}
+
+	/**
+	 * Used to stop the waiter threads.
+	 * 
+	 * @since 1.1
+	 */
+	public void shutdown() {
+		waiters.shutdownNow();
+	}
+
+	/**
+	 * Represents the completion of a remote testing process.
+	 * 
+	 * @since 1.1
+	 */
+	public static class Completion {
+
+		private final Node node;
+		private final TestPacket testPacket;
+		private final PacketResult result;
+		private final Exception error;
+
+		public Completion(Node node, TestPacket testPacket,
+				PacketResult result, Exception error) {
+			this.node = node;
+			this.testPacket = testPacket;
+			this.result = result;
+			this.error = error;
+		}
+
+		/**
+		 * Used to check if this is a wake-up instead of a completed process.
+		 * 
+		 * @return true if there is no {@link TestPacket}
+		 */
+		public boolean isWakeUp() {
+			return testPacket == null;
+		}
+
+		public Node getNode() {
+			return node;
+		}
+
+		public TestPacket getTestPacket() {
+			return testPacket;
+		}
+
+		/**
+		 * Used to get the result of the process.
+		 * 
+		 * @return the {@link PacketResult} or null if there was an error or
+		 *         the process was skipped
+		 */
+		public PacketResult getResult() {
+			return result;
+		}
+
+		/**
+		 * Used to get the error thrown while waiting for the process, e.g.
+		 * when the channel to the {@link Node} was lost.
+		 * 
+		 * @return the error or null if the process completed normally
+		 */
+		public Exception getError() {
+			return error;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.execution;
+
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+
+import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import jenkins.model.Jenkins;
+
+import com.bombardier.plugin.misc.PrintMessages;
+
+/**
+ * Represents a test packet launched by a {@link RemoteRunner}. Waiting for
+ * its result survives a lost connection to the Slave {@link Node} - the
+ * testing process keeps running detached and, as soon as the {@link Node}
+ * reconnects, the Master reattaches to it and continues streaming its output
+ * from where it stopped. Nothing is executed again.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class RemoteExecution {
+
+	/**
+	 * The time, in seconds, to wait for a disconnected {@link Node} to come
+	 * back online. Can be overridden with the system property
+	 * "com.bombardier.plugin.execution.RemoteExecution.reconnectTimeout".
+	 */
+	public static final long RECONNECT_TIMEOUT = Long.getLong(
+			RemoteExecution.class.getName() + ".reconnectTimeout", 300);
+
+	private final String nodeName;
+	private final String runFolder;
+	private final String statisticsFile;
+	private final TaskListener listener;
+
+	/**
+	 * Used to initialize an instance of the {@link RemoteExecution}.
+	 * 
+	 * @param nodeName
+	 *            the name of the {@link Node}
+	 * @param runFolder
+	 *            the run folder of the test packet on the {@link Node}
+	 * @param statisticsFile
+	 *            the statistics file on the {@link Node}
+	 * @param listener
+	 *            the listener receiving the output of the testing process
+	 */
+	public RemoteExecution(String nodeName, String runFolder,
+			String statisticsFile, TaskListener listener) {
+		this.nodeName = nodeName;
+		this.runFolder = runFolder;
+		this.statisticsFile = statisticsFile;
+		this.listener = listener;
+	}
+
+	/**
+	 * Used to wait for the completion of the test packet.
+	 * 
+	 * @return the {@link PacketResult}
+	 * @throws Exception
+	 *             if the execution failed or the {@link Node} didn't
+	 *             reconnect in time
+	 * @since 1.1
+	 */
+	public PacketResult join() throws Exception {
+		while (true) {
+			Node node = Jenkins.getInstance().getNode(nodeName);
+			VirtualChannel channel = (node != null) ? node.getChannel() : null;
+			if (channel == null) {
+				awaitReconnect();
+				continue;
+			}
+			try {
+				return channel.call(new RemoteRunner.Await(runFolder,
+						statisticsFile, listener));
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Exception e) {
+				Computer computer = node.toComputer();
+				if (computer != null && computer.isOnline()
+						&& computer.getChannel() == channel) {
+					// not a lost connection
+					throw e;
+				}
+				PrintMessages.printNodeDisconnected(listener.getLogger(),
+						nodeName);
+				awaitReconnect();
+				PrintMessages.printNodeReattached(listener.getLogger(),
+						nodeName);
+			}
+		}
+	}
+
+	/**
+	 * Used to kill the testing process and its children on the {@link Node}.
+	 * The kill is sent asynchronously, so that several test packets can be
+	 * killed in parallel; {@link #join()} then completes with the partial
+	 * result.
+	 * 
+	 * @return the {@link Future} of the kill, or null if the {@link Node} is
+	 *         offline
+	 * @throws IOException
+	 * @since 1.1
+	 */
+	public Future<Void> kill() throws IOException {
+		Node node = Jenkins.getInstance().getNode(nodeName);
+		VirtualChannel channel = (node != null) ? node.getChannel() : null;
+		if (channel == null) {
+			return null;
+		}
+		return channel.callAsync(new RemoteRunner.Kill(runFolder));
+	}
+
+	public String getNodeName() {
+		return nodeName;
+	}
+
+	/**
+	 * Used to wait until the {@link Node} is back online.
+	 * 
+	 * @throws Exception
+	 *             if it didn't reconnect within the {@link #RECONNECT_TIMEOUT}
+	 *             or was removed
+	 */
+	private void awaitReconnect() throws Exception {
+		long deadline = System.currentTimeMillis()
+				+ TimeUnit.SECONDS.toMillis(RECONNECT_TIMEOUT);
+		while (System.currentTimeMillis() < deadline) {
+			Node node = Jenkins.getInstance().getNode(nodeName);
+			if (node == null) {
+				// a removed node never comes back
+				throw PrintMessages.throwNodeRemoved(nodeName);
+			}
+			Computer computer = node.toComputer();
+			if (computer != null && computer.isOnline()
+					&& computer.getChannel() != null) {
+				return;
+			}
+			Thread.sleep(1000);
+		}
+		throw PrintMessages.throwNodeLost(nodeName, RECONNECT_TIMEOUT);
+	}
+}
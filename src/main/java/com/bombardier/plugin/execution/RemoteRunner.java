@@ -0,0 +1,471 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.execution;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.tasks.Shell;
+import hudson.util.ProcessTree;
+import hudson.util.ProcessTree.OSProcess;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import jenkins.MasterToSlaveCallable;
+
+import com.bombardier.plugin.execution.PacketResult.TestOutcome;
+import com.bombardier.plugin.statistics.Result;
+import com.bombardier.plugin.statistics.TestResultAdapter;
+import com.bombardier.plugin.statistics.TestSuite;
+import com.bombardier.plugin.statistics.TestSuites;
+import com.bombardier.plugin.utils.FilePathUtils;
+import com.bombardier.plugin.utils.HistoryAndStatsUtils;
+
+/**
+ * Used to execute the test packets of a build on a Slave {@link Node}. The
+ * runner is set up once per build and {@link Node} - the shell script is
+ * created once and each test packet is launched detached from the channel,
+ * with its PID, output and exit code recorded in a run folder inside the
+ * project folder on the {@link Node}. The testing process therefore survives
+ * a lost connection and the Master reattaches to it through a
+ * {@link RemoteExecution}. The statistics file is read on the {@link Node}
+ * and the outcome of each test case is sent back as a {@link PacketResult}.
+ * <p>
+ * There is no long-lived process or thread on the {@link Node} taking the
+ * test packets over the channel, since it wouldn't survive a restart of the
+ * agent, which the detached test packets do. Each test packet still costs a
+ * remote call launching a new <code>nohup sh</code> process, and a remote
+ * call waiting for it, which notices its completion within 200 milliseconds.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class RemoteRunner {
+
+	private static final String RUNS_FOLDER = ".runs";
+	private static final String PID_FILE = "pid";
+	private static final String OUTPUT_FILE = "output.log";
+	private static final String EXIT_FILE = "exit";
+	private static final String STREAMED_FILE = "streamed";
+	private static final String DEADLINE_FILE = "deadline";
+	private static final String TIMED_OUT_FILE = "timed-out";
+
+	/**
+	 * The exit code recorded for a test packet killed due to its timeout.
+	 */
+	private static final int TIMED_OUT_EXIT_CODE = 124;
+
+	/**
+	 * The exit code recorded for a test packet killed on request.
+	 */
+	private static final int KILLED_EXIT_CODE = 143;
+
+	/**
+	 * The interval, in milliseconds, in which the output of a running test
+	 * packet is read on the {@link Node}.
+	 */
+	private static final long READ_INTERVAL = 200;
+
+	/**
+	 * Executes the shell script detached, in its own folder: the first
+	 * argument is the run folder, the rest is the command line.
+	 */
+	private static final String LAUNCH_WRAPPER = "d=\"$1\"; shift; "
+			+ "echo $$ > \"$d/" + PID_FILE + "\"; " + "\"$@\" > \"$d/"
+			+ OUTPUT_FILE + "\" 2>&1; " + "echo $? > \"$d/" + EXIT_FILE
+			+ ".tmp\"; " + "mv \"$d/" + EXIT_FILE + ".tmp\" \"$d/" + EXIT_FILE
+			+ "\"";
+
+	private final Node node;
+	private final FilePath script;
+	private final String[] cmds;
+	private final String workingDirectory;
+	private final String statisticsFile;
+	private final String runsFolder;
+	private int numOfRuns;
+
+	/**
+	 * Used to initialize an instance of the {@link RemoteRunner}.
+	 */
+	private RemoteRunner(Node node, FilePath script, String[] cmds,
+			String workingDirectory, String statisticsFile, String runsFolder) {
+		this.node = node;
+		this.script = script;
+		this.cmds = cmds;
+		this.workingDirectory = workingDirectory;
+		this.statisticsFile = statisticsFile;
+		this.runsFolder = runsFolder;
+	}
+
+	/**
+	 * Used to set up a runner on a {@link Node} for the current build - its
+	 * shell script is created on the {@link Node}.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @param build
+	 *            the current build
+	 * @param shellCommands
+	 *            the shell commands executing a test packet
+	 * @return the started {@link RemoteRunner}
+	 * @throws Exception
+	 * @since 1.1
+	 */
+	public static RemoteRunner start(Node node, AbstractBuild<?, ?> build,
+			String shellCommands) throws Exception {
+		Shell shell = new Shell(shellCommands);
+		FilePath script = shell.createScriptFile(node.getRootPath());
+		return new RemoteRunner(node, script,
+				shell.buildCommandLine(script), FilePathUtils
+						.getPathToTestEnvOnNode(node, build).getParent()
+						.getRemote(), FilePathUtils.getStatistics(node, build)
+						.getRemote(), FilePathUtils
+						.getPathToTestProjectWorkspaceOnNode(node, build)
+						.getRemote()
+						+ "/" + RUNS_FOLDER);
+	}
+
+	/**
+	 * Used to launch a test packet detached on the {@link Node}.
+	 * 
+	 * @param environment
+	 *            the environment variables of the testing process
+	 * @param timeout
+	 *            the time, in seconds, after which the testing process is
+	 *            killed, 0 for no timeout
+	 * @param listener
+	 *            the listener receiving the output of the testing process
+	 * @return the {@link RemoteExecution} used to wait for the result
+	 * @throws Exception
+	 * @since 1.1
+	 */
+	public RemoteExecution run(EnvVars environment, long timeout,
+			TaskListener listener) throws Exception {
+		String runFolder = runsFolder + "/" + (numOfRuns++);
+		node.getChannel().call(
+				new Launch(cmds, environment, workingDirectory,
+						statisticsFile, runFolder, timeout));
+		return new RemoteExecution(node.getNodeName(), runFolder,
+				statisticsFile, listener);
+	}
+
+	/**
+	 * Used to stop the runner and delete its shell script.
+	 * 
+	 * @throws Exception
+	 * @since 1.1
+	 */
+	public void stop() throws Exception {
+		if (node.getChannel() != null) {
+			script.delete();
+		}
+	}
+
+	public Node getNode() {
+		return node;
+	}
+
+	/**
+	 * Used to kill, on the {@link Node}, the process tree of a launched test
+	 * packet and record its exit code, unless it has already completed. The
+	 * waiting {@link Await} completes as with a normal exit.
+	 * 
+	 * @param run
+	 *            the run folder of the test packet
+	 * @param exitCode
+	 *            the exit code to be recorded
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void terminate(File run, int exitCode) throws IOException,
+			InterruptedException {
+		File exit = new File(run, EXIT_FILE);
+		if (exit.exists()) {
+			return;
+		}
+		kill(run);
+		if (!exit.exists()) {
+			File temp = new File(run, EXIT_FILE + "." + exitCode);
+			Files.write(temp.toPath(),
+					Integer.toString(exitCode).getBytes(StandardCharsets.UTF_8));
+			Files.move(temp.toPath(), exit.toPath(),
+					StandardCopyOption.ATOMIC_MOVE);
+		}
+	}
+
+	/**
+	 * Used to kill, on the {@link Node}, the process tree of a launched test
+	 * packet.
+	 * 
+	 * @param run
+	 *            the run folder of the test packet
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	static void kill(File run) throws IOException, InterruptedException {
+		File pid = new File(run, PID_FILE);
+		if (!pid.exists()) {
+			return;
+		}
+		OSProcess process = ProcessTree.get().get((int) readNumber(pid));
+		if (process != null) {
+			process.killRecursively();
+		}
+	}
+
+	/**
+	 * Used to read a number written to a file in a run folder.
+	 * 
+	 * @param file
+	 *            the file
+	 * @return the number
+	 * @throws IOException
+	 */
+	private static long readNumber(File file) throws IOException {
+		return Long.parseLong(new String(Files.readAllBytes(file.toPath()),
+				StandardCharsets.UTF_8).trim());
+	}
+
+	/**
+	 * Used to kill a launched test packet on the {@link Node}.
+	 */
+	static class Kill extends MasterToSlaveCallable<Void, Exception> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String runFolder;
+
+		Kill(String runFolder) {
+			this.runFolder = runFolder;
+		}
+
+		@Override
+		public Void call() throws Exception {
+			terminate(new File(runFolder), KILLED_EXIT_CODE);
+			return null;
+		}
+	}
+
+	/**
+	 * Used to launch the shell script of a test packet on the {@link Node},
+	 * detached from the channel.
+	 */
+	private static class Launch extends MasterToSlaveCallable<Void, IOException> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String[] cmds;
+		private final EnvVars environment;
+		private final String workingDirectory;
+		private final String statisticsFile;
+		private final String runFolder;
+		private final long timeout;
+
+		private Launch(String[] cmds, EnvVars environment,
+				String workingDirectory, String statisticsFile,
+				String runFolder, long timeout) {
+			this.cmds = cmds;
+			this.environment = environment;
+			this.workingDirectory = workingDirectory;
+			this.statisticsFile = statisticsFile;
+			this.runFolder = runFolder;
+			this.timeout = timeout;
+		}
+
+		@Override
+		public Void call() throws IOException {
+			File run = new File(runFolder);
+			run.mkdirs();
+			new File(statisticsFile).delete();
+
+			// The deadline is kept on the node, so it survives a reattach
+			if (timeout > 0) {
+				long deadline = System.currentTimeMillis() + timeout * 1000;
+				Files.write(new File(run, DEADLINE_FILE).toPath(), Long
+						.toString(deadline).getBytes(StandardCharsets.UTF_8));
+			}
+
+			List<String> command = new ArrayList<String>();
+			command.addAll(Arrays.asList("nohup", "sh", "-c", LAUNCH_WRAPPER,
+					"sh", run.getAbsolutePath()));
+			command.addAll(Arrays.asList(cmds));
+
+			ProcessBuilder builder = new ProcessBuilder(command).directory(
+					new File(workingDirectory)).redirectErrorStream(true);
+			builder.redirectInput(new File("/dev/null"));
+			builder.redirectOutput(new File(run, "nohup.out"));
+			builder.environment().putAll(environment);
+			builder.start();
+			return null;
+		}
+	}
+
+	/**
+	 * Used to wait, on the {@link Node}, for the completion of a launched
+	 * test packet. Its output is streamed to the listener starting from the
+	 * position recorded in the run folder, so that nothing is printed twice
+	 * after a reattach. A test packet still running at its deadline is killed
+	 * together with its child processes.
+	 */
+	static class Await extends MasterToSlaveCallable<PacketResult, Exception> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String runFolder;
+		private final String statisticsFile;
+		private final TaskListener listener;
+
+		Await(String runFolder, String statisticsFile, TaskListener listener) {
+			this.runFolder = runFolder;
+			this.statisticsFile = statisticsFile;
+			this.listener = listener;
+		}
+
+		@Override
+		public PacketResult call() throws Exception {
+			File run = new File(runFolder);
+			File exit = new File(run, EXIT_FILE);
+			File streamed = new File(run, STREAMED_FILE);
+			File deadlineFile = new File(run, DEADLINE_FILE);
+			long position = streamed.exists() ? readNumber(streamed) : 0;
+			long deadline = deadlineFile.exists() ? readNumber(deadlineFile)
+					: Long.MAX_VALUE;
+
+			boolean completed;
+			do {
+				completed = exit.exists();
+				long read = streamOutput(new File(run, OUTPUT_FILE), position);
+				if (read > 0) {
+					position += read;
+					Files.write(streamed.toPath(), Long.toString(position)
+							.getBytes(StandardCharsets.UTF_8));
+				}
+				if (!completed) {
+					// A hung test packet may still be writing output
+					if (System.currentTimeMillis() >= deadline) {
+						timeOut(run, exit);
+					} else if (read == 0) {
+						Thread.sleep(READ_INTERVAL);
+					}
+				}
+			} while (!completed);
+
+			int exitCode = (int) readNumber(exit);
+			return new PacketResult(exitCode, readOutcomes(new File(
+					statisticsFile)), new File(run, TIMED_OUT_FILE).exists());
+		}
+
+		/**
+		 * Used to kill a test packet, which exceeded its deadline, and record
+		 * its exit code.
+		 * 
+		 * @param run
+		 *            the run folder
+		 * @param exit
+		 *            the exit file
+		 * @throws Exception
+		 */
+		private void timeOut(File run, File exit) throws Exception {
+			Files.write(new File(run, TIMED_OUT_FILE).toPath(), new byte[0]);
+			terminate(run, TIMED_OUT_EXIT_CODE);
+		}
+
+		/**
+		 * Used to copy the output written since a position to the listener.
+		 * 
+		 * @param output
+		 *            the output file
+		 * @param position
+		 *            the position to start from
+		 * @return the number of copied bytes
+		 * @throws IOException
+		 */
+		private long streamOutput(File output, long position)
+				throws IOException {
+			if (!output.exists() || output.length() <= position) {
+				return 0;
+			}
+			RandomAccessFile file = new RandomAccessFile(output, "r");
+			try {
+				file.seek(position);
+				byte[] buffer = new byte[8192];
+				long total = 0;
+				int read;
+				while ((read = file.read(buffer)) > 0) {
+					listener.getLogger().write(buffer, 0, read);
+					total += read;
+				}
+				listener.getLogger().flush();
+				return total;
+			} finally {
+				file.close();
+			}
+		}
+
+		/**
+		 * Used to read the outcome of each test case from the statistics
+		 * file.
+		 * 
+		 * @param statistics
+		 *            the statistics file
+		 * @return the outcomes, empty if there is no statistics file
+		 * @throws Exception
+		 */
+		private List<TestOutcome> readOutcomes(File statistics)
+				throws Exception {
+			List<TestOutcome> outcomes = new ArrayList<TestOutcome>();
+			if (!statistics.exists()) {
+				return outcomes;
+			}
+			TestSuites testSuites = HistoryAndStatsUtils
+					.getTestResults(new FilePath(statistics));
+			for (TestSuite testSuite : testSuites.getTestsuite()) {
+				for (Result result : testSuite.getTestcases()) {
+					double time = 0;
+					try {
+						time = Double.parseDouble(result.getTime());
+					} catch (Exception e) {
+						// no or malformed time
+					}
+					outcomes.add(new TestOutcome(result.getName(), result
+							.getClassName(), time,
+							result instanceof TestResultAdapter.TestCaseSuccess));
+				}
+			}
+			return outcomes;
+		}
+	}
+}
@@ -0,0 +1,1373 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.execution;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.Result;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import jenkins.model.Jenkins;
+
+import com.bombardier.plugin.DTBuild;
+import com.bombardier.plugin.DTJob;
+import com.bombardier.plugin.execution.PacketResult.TestOutcome;
+import com.bombardier.plugin.execution.ProcessMonitor.Completion;
+import com.bombardier.plugin.history.History;
+import com.bombardier.plugin.history.Test;
+import com.bombardier.plugin.misc.GenericEntry;
+import com.bombardier.plugin.misc.PrintMessages;
+import com.bombardier.plugin.provisioning.CloudProvisioner;
+import com.bombardier.plugin.reservation.NodeBroker;
+import com.bombardier.plugin.reservation.NodeReservations;
+import com.bombardier.plugin.reservation.NodeScorer;
+import com.bombardier.plugin.scheduling.TempTest;
+import com.bombardier.plugin.scheduling.TestPacket;
+import com.bombardier.plugin.scheduling.TestTable;
+import com.bombardier.plugin.statistics.TestResultAdapter.TestCaseFail;
+import com.bombardier.plugin.statistics.TestResultAdapter.TestCaseSkipped;
+import com.bombardier.plugin.statistics.TestSuite;
+import com.bombardier.plugin.statistics.TestSuites;
+import com.bombardier.plugin.utils.FilePathUtils;
+import com.bombardier.plugin.utils.HistoryAndStatsUtils;
+import com.bombardier.plugin.utils.NodeUtils;
+
+/**
+ * Used to execute the {@link TestPacket}s of a build on the Slave
+ * {@link Node}s. Each free {@link Node} takes the next pending
+ * {@link TestPacket}, and the results are collected as the processes
+ * complete. A {@link Node}, which goes offline and doesn't come back in
+ * time, is considered lost - its unfinished {@link TestPacket} is put back
+ * in front of the pending ones and executed by the remaining {@link Node}s.
+ * A {@link TestPacket} exceeding its timeout is killed, its unfinished test
+ * cases are reported as timed out and the build becomes unstable. In the
+ * fail-fast mode the first failed {@link TestPacket} stops the execution -
+ * the {@link TestPacket}s in progress are killed on all {@link Node}s and
+ * only their partial results are collected. Otherwise the failed test
+ * cases can be retried after the main pass, each one preferably on another
+ * {@link Node} than the one where it failed. A test case passing on a retry
+ * is reported as flaky. While there are pending {@link TestPacket}s, the
+ * {@link Node}s of the label becoming free during the build, including the
+ * lost ones coming back, are reserved, prepared and join the testing. If
+ * the job has a target duration, extra {@link Node}s are requested from the
+ * clouds through the {@link CloudProvisioner} and released as soon as no
+ * {@link TestPacket} is left for them. The {@link Node}s joining are limited
+ * to the fair share of the build (see {@link NodeBroker}), and without
+ * retries the {@link Node}s running out of {@link TestPacket}s are handed
+ * over to the other builds right away. The {@link Node}s may also be
+ * reclaimed by a queued build with a higher priority - at the end of their
+ * {@link TestPacket}s, or by killing them, in which case their unfinished
+ * test cases are requeued.
+ * <p>
+ * In the queue mode the {@link TestPacket}s are put in the Jenkins build
+ * queue as {@link PacketTask}s instead, and the {@link PacketLoadBalancer}
+ * assigns them to the executors of the reserved {@link Node}s, one at a time
+ * per {@link Node}. The executors run them and report their completion
+ * back, so the results are collected the same way.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class TestDispatcher {
+
+	/**
+	 * The time, in seconds, to wait for the test packets in progress to be
+	 * killed.
+	 */
+	private static final long KILL_TIMEOUT = 30;
+
+	private final AbstractBuild<?, ?> build;
+	private final BuildListener listener;
+	private final NodePreparer preparer;
+	private final int historyMaxSize;
+	private final TestTimeouts timeouts;
+	private final boolean failFast;
+	private final int retries;
+	private final boolean queued;
+	private final Set<Node> nodes;
+	private final ProcessMonitor monitor;
+	private final PacketStager stager;
+	private CloudProvisioner provisioner;
+
+	private final LinkedList<TestPacket> pending = new LinkedList<TestPacket>();
+	private final Queue<Node> idleNodes;
+	private final Map<Node, RemoteExecution> running = Collections
+			.synchronizedMap(new LinkedHashMap<Node, RemoteExecution>());
+	private final Set<Node> lostNodes = Collections
+			.synchronizedSet(new HashSet<Node>());
+	private volatile boolean stopped;
+
+	private final Map<TestPacket, PacketTask> queuedTasks = new LinkedHashMap<TestPacket, PacketTask>();
+	private final Set<Node> assignedNodes = new HashSet<Node>();
+	private final Map<Node, Double> assignedEET = new HashMap<Node, Double>();
+	private final Set<Node> preempting = new HashSet<Node>();
+	private int numOfTasks;
+
+	private final Map<String, Failure> failures = new LinkedHashMap<String, Failure>();
+	private final Map<TestPacket, Node> retriedOn = new HashMap<TestPacket, Node>();
+	private final List<String> flakyTests = new ArrayList<String>();
+
+	/**
+	 * Used to initialize an instance of the {@link TestDispatcher}.
+	 * 
+	 * @param build
+	 *            the current build
+	 * @param listener
+	 *            the build's listener
+	 * @param preparer
+	 *            the {@link NodePreparer} preparing the {@link Node}s
+	 * @param nodes
+	 *            the Slave {@link Node}s executing the tests
+	 * @param historyMaxSize
+	 *            the maximum size of the testing {@link History}
+	 * @param timeouts
+	 *            the {@link TestTimeouts} of the test cases
+	 * @param failFast
+	 *            true if the execution should stop on the first failure
+	 * @param retries
+	 *            the number of times the failed test cases are retried
+	 * @param queued
+	 *            true if the {@link TestPacket}s are dispatched through the
+	 *            build queue
+	 */
+	public TestDispatcher(AbstractBuild<?, ?> build, BuildListener listener,
+			NodePreparer preparer, Set<Node> nodes, int historyMaxSize,
+			TestTimeouts timeouts, boolean failFast, int retries,
+			boolean queued) {
+		this.build = build;
+		this.listener = listener;
+		this.preparer = preparer;
+		this.historyMaxSize = historyMaxSize;
+		this.timeouts = timeouts;
+		this.failFast = failFast;
+		this.retries = retries;
+		this.queued = queued;
+		this.nodes = new HashSet<Node>(nodes);
+		// The best ranked nodes take the first test packets
+		this.idleNodes = new LinkedList<Node>(NodeScorer.rank(getJob(), nodes));
+		this.monitor = new ProcessMonitor();
+		this.stager = new PacketStager(build, nodes.size());
+	}
+
+	/**
+	 * Used to execute the {@link TestPacket}s in their order and wait for all
+	 * of them to complete, then retry the failed test cases.
+	 * 
+	 * @param testPackets
+	 *            the {@link TestPacket}s
+	 * @param prefetch
+	 *            true if the likely next {@link TestPacket}s should be
+	 *            transferred to the busy {@link Node}s in advance
+	 * @return true if all {@link TestPacket}s were executed, false if the
+	 *         execution was stopped on a failure in the fail-fast mode
+	 * @throws Exception
+	 *             if a {@link TestPacket} failed for another reason than a
+	 *             lost {@link Node}, or if all {@link Node}s were lost
+	 */
+	public boolean execute(List<TestPacket> testPackets, boolean prefetch)
+			throws Exception {
+		synchronized (this) {
+			pending.addAll(testPackets);
+		}
+		NodeWatcher.register(this);
+		try {
+			provisionNodes(testPackets);
+			executePending(prefetch);
+			for (int retry = 1; retry <= retries && !stopped
+					&& !failures.isEmpty(); retry++) {
+				retryFailures(retry);
+				executePending(false);
+			}
+			if (!flakyTests.isEmpty()) {
+				reportFlakyTests();
+			}
+			return !stopped;
+		} finally {
+			// Aborted or failed - nothing may keep running on the nodes
+			if (!running.isEmpty() || !queuedTasks.isEmpty()) {
+				abort();
+			}
+			NodeWatcher.unregister(this);
+			if (provisioner != null) {
+				provisioner.shutdown();
+			}
+			stager.shutdown();
+			monitor.shutdown();
+		}
+	}
+
+	/**
+	 * Used to kill the {@link TestPacket}s in progress when the execution
+	 * ends abnormally, e.g. the build is aborted. The kills are sent even if
+	 * the build's thread was interrupted.
+	 */
+	private void abort() {
+		cancelQueued();
+		PrintMessages.printKillingTestPackets(listener.getLogger(),
+				running.size());
+		boolean interrupted = Thread.interrupted();
+		try {
+			killRunning();
+		} catch (InterruptedException e) {
+			interrupted = true;
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Used to execute the pending {@link TestPacket}s and wait for all of
+	 * them to complete.
+	 * 
+	 * @param prefetch
+	 *            true if the likely next {@link TestPacket}s should be
+	 *            transferred to the busy {@link Node}s in advance
+	 * @throws Exception
+	 */
+	private void executePending(boolean prefetch) throws Exception {
+		if (queued) {
+			executeQueued();
+			return;
+		}
+		while (!pending.isEmpty() || !running.isEmpty()) {
+			if (!pending.isEmpty() && !idleNodes.isEmpty()) {
+				dispatchNext();
+
+				// Transfer the likely next packets while the current ones
+				// are executed, once all nodes are busy
+				if (prefetch && idleNodes.isEmpty()) {
+					prefetchNext();
+				}
+			} else if (!running.isEmpty()) {
+				// Block until a node completes its test packet
+				collectCompletion(monitor.take());
+			} else {
+				throw PrintMessages.throwAllNodesLost(pending.size());
+			}
+		}
+	}
+
+	/**
+	 * Used to put the pending {@link TestPacket}s in the build queue and wait
+	 * for all of them to complete. The unfinished {@link TestPacket}s of the
+	 * lost {@link Node}s are put in the build queue again.
+	 * 
+	 * @throws Exception
+	 */
+	private void executeQueued() throws Exception {
+		while (!pending.isEmpty() || monitor.getRunning() > 0) {
+			while (!pending.isEmpty()) {
+				TestPacket tp;
+				synchronized (this) {
+					tp = pending.poll();
+				}
+				schedule(tp);
+			}
+			if (lostNodes.containsAll(nodes)) {
+				int numOfQueued = queuedTasks.size();
+				cancelQueued();
+				throw PrintMessages.throwAllNodesLost(numOfQueued);
+			}
+			// Block until an executor completes its test packet
+			collectCompletion(monitor.take());
+		}
+	}
+
+	/**
+	 * Used to put a {@link TestPacket} in the build queue as a
+	 * {@link PacketTask}.
+	 * 
+	 * @param tp
+	 *            the {@link TestPacket}
+	 */
+	private void schedule(TestPacket tp) {
+		PacketTask task = new PacketTask(this, build.getProject(), tp,
+				++numOfTasks);
+		synchronized (this) {
+			queuedTasks.put(tp, task);
+		}
+		monitor.expect();
+		Jenkins.getInstance().getQueue().schedule2(task, 0);
+	}
+
+	/**
+	 * Used to remove the {@link PacketTask}s, which haven't started yet, from
+	 * the build queue.
+	 */
+	private void cancelQueued() {
+		List<PacketTask> tasks;
+		synchronized (this) {
+			tasks = new ArrayList<PacketTask>(queuedTasks.values());
+		}
+		for (PacketTask task : tasks) {
+			if (Jenkins.getInstance().getQueue().cancel(task)) {
+				synchronized (this) {
+					queuedTasks.remove(task.getTestPacket());
+				}
+				monitor.forget();
+			}
+		}
+	}
+
+	/**
+	 * Used by the executor of a {@link PacketTask} to execute its
+	 * {@link TestPacket} on the executor's {@link Node} and report the
+	 * completion. If the execution was stopped meanwhile, the
+	 * {@link TestPacket} is skipped.
+	 * 
+	 * @param node
+	 *            the {@link Node} of the executor
+	 * @param tp
+	 *            the {@link TestPacket}
+	 */
+	void executeTask(Node node, TestPacket tp) {
+		synchronized (this) {
+			queuedTasks.remove(tp);
+		}
+		if (stopped) {
+			monitor.complete(new Completion(node, tp, null, null));
+			return;
+		}
+		try {
+			RemoteExecution execution = dispatchTestPacket(node, tp, false);
+			running.put(node, execution);
+			if (stopped) {
+				execution.kill();
+			}
+			monitor.complete(new Completion(node, tp, execution.join(), null));
+		} catch (Exception e) {
+			monitor.complete(new Completion(node, tp, null, e));
+		}
+	}
+
+	/**
+	 * Used by the {@link PacketLoadBalancer} to check if a
+	 * {@link TestPacket} can be assigned to a {@link Node} - one reserved for
+	 * the build, not lost and not executing another {@link TestPacket}.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @param tp
+	 *            the {@link TestPacket}
+	 * @return true if the {@link Node} can take the {@link TestPacket}
+	 */
+	synchronized boolean canExecuteOn(Node node, TestPacket tp) {
+		return !stopped && nodes.contains(node) && !lostNodes.contains(node)
+				&& !assignedNodes.contains(node);
+	}
+
+	/**
+	 * Used by the {@link PacketLoadBalancer} to record the assignment of a
+	 * {@link TestPacket} to a {@link Node}.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @param tp
+	 *            the {@link TestPacket}
+	 */
+	synchronized void assign(Node node, TestPacket tp) {
+		assignedNodes.add(node);
+		assignedEET.put(node, getAssignedEET(node) + tp.getTotalEET());
+	}
+
+	/**
+	 * Used to get the estimated execution time of the {@link TestPacket}s
+	 * assigned to a {@link Node} so far in the queue mode.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @return the estimated execution time in seconds
+	 */
+	synchronized double getAssignedEET(Node node) {
+		Double eet = assignedEET.get(node);
+		return (eet != null) ? eet : 0;
+	}
+
+	/**
+	 * Used to check if a retried {@link TestPacket} failed on a {@link Node}
+	 * and should rather be executed by another one.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @param tp
+	 *            the {@link TestPacket}
+	 * @return true if the {@link Node} should be avoided
+	 */
+	synchronized boolean isAvoided(Node node, TestPacket tp) {
+		return node.equals(retriedOn.get(tp));
+	}
+
+	/**
+	 * Used to request extra {@link Node}s from the clouds, if the
+	 * {@link TestPacket}s are estimated to take longer than the target
+	 * duration of the job.
+	 * 
+	 * @param testPackets
+	 *            the {@link TestPacket}s
+	 */
+	private void provisionNodes(List<TestPacket> testPackets) {
+		DTJob job = getJob();
+		double targetDuration = job.getTargetDurationValue();
+		if (targetDuration <= 0 || job.getAssignedLabel() == null) {
+			return;
+		}
+		provisioner = new CloudProvisioner(listener, job.getAssignedLabel());
+		provisioner.provision(testPackets, nodes.size(), targetDuration);
+	}
+
+	/**
+	 * Used by the {@link NodeWatcher} and the {@link NodeBroker} to wake up
+	 * the dispatching thread when a {@link Node} may have become free or was
+	 * handed over to the build.
+	 */
+	public void nodeAvailable() {
+		monitor.wakeUp();
+	}
+
+	public AbstractBuild<?, ?> getBuild() {
+		return build;
+	}
+
+	public DTJob getJob() {
+		return ((DTBuild) build).getTestJob();
+	}
+
+	/**
+	 * Used to check if the build could use more {@link Node}s.
+	 * 
+	 * @return true if there are {@link TestPacket}s waiting for a
+	 *         {@link Node}
+	 */
+	public synchronized boolean wantsNodes() {
+		return !stopped && (!pending.isEmpty() || !queuedTasks.isEmpty());
+	}
+
+	/**
+	 * Used to get the number of {@link Node}s used by the build.
+	 * 
+	 * @return the number of {@link Node}s, which aren't lost
+	 */
+	public synchronized int getNumOfNodes() {
+		return nodes.size() - lostNodes.size();
+	}
+
+	/**
+	 * Used to reserve the {@link Node}s of the label, which became free
+	 * during the build, up to its fair share, prepare them and let them take
+	 * the pending {@link TestPacket}s, together with the {@link Node}s handed
+	 * over to the build. A lost {@link Node} may join again once it's back.
+	 */
+	private void joinFreeNodes() {
+		if (!wantsNodes()) {
+			return;
+		}
+		DTJob job = getJob();
+		if (job.getAssignedLabel() == null) {
+			return;
+		}
+		Set<Node> joining = new LinkedHashSet<Node>();
+		for (Node node : NodeReservations.getReserved(build)) {
+			if (!nodes.contains(node) || lostNodes.contains(node)) {
+				joining.add(node);
+			}
+		}
+		int room = NodeBroker.getFairShare(job, build, -1) - getNumOfNodes()
+				- joining.size();
+		joining.addAll(NodeBroker.select(job,
+				NodeUtils.getFreeNodes(job), room));
+
+		boolean joined = false;
+		for (Node node : NodeReservations.reserve(build, joining)) {
+			preparer.add(node);
+			synchronized (this) {
+				nodes.add(node);
+				lostNodes.remove(node);
+				assignedNodes.remove(node);
+			}
+			idleNodes.add(node);
+			joined = true;
+			PrintMessages.printNodeJoined(listener.getLogger(),
+					node.getDisplayName(), nodes.size() - lostNodes.size());
+		}
+		if (joined && queued) {
+			Jenkins.getInstance().getQueue().scheduleMaintenance();
+		}
+	}
+
+	/**
+	 * Used to put a {@link TestPacket} with each failed test case back to the
+	 * pending ones.
+	 * 
+	 * @param retry
+	 *            the number of the retry
+	 */
+	private void retryFailures(int retry) {
+		PrintMessages.printRetryingTests(listener.getLogger(),
+				failures.size(), retry);
+		for (Failure failure : failures.values()) {
+			TestPacket tp = new TestPacket(failure.table,
+					new int[] { failure.index },
+					failure.table.getEET(failure.index));
+			synchronized (this) {
+				retriedOn.put(tp, failure.node);
+				pending.add(tp);
+			}
+		}
+	}
+
+	/**
+	 * Used to record the failed test cases of a completed {@link TestPacket}
+	 * and the ones passing on a retry.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @param tp
+	 *            the {@link TestPacket}
+	 * @param result
+	 *            its {@link PacketResult}
+	 */
+	private void recordFailures(Node node, TestPacket tp, PacketResult result) {
+		TestTable table = tp.getTable();
+		if (table == null) {
+			return;
+		}
+		for (TestOutcome outcome : result.getOutcomes()) {
+			String key = outcome.getName().toLowerCase();
+			if (outcome.isPassed()) {
+				if (failures.remove(key) != null) {
+					flakyTests.add(outcome.getName());
+				}
+				continue;
+			}
+			for (int index : tp.getIndices()) {
+				if (table.getName(index).equalsIgnoreCase(outcome.getName())) {
+					failures.put(key, new Failure(table, index, node));
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Used to report the test cases, which passed only on a retry. If no test
+	 * case failed on all retries, the build becomes unstable instead of
+	 * failed.
+	 */
+	private void reportFlakyTests() {
+		PrintMessages.printFlakyTests(listener.getLogger(), flakyTests);
+		if (failures.isEmpty()) {
+			build.setResult(Result.UNSTABLE);
+		}
+	}
+
+	/**
+	 * Used to dispatch the next pending {@link TestPacket} to the next idle
+	 * {@link Node}. If the {@link Node} is lost meanwhile, the
+	 * {@link TestPacket} is put back to the pending ones.
+	 * 
+	 * @throws Exception
+	 */
+	private void dispatchNext() throws Exception {
+		Node node = idleNodes.poll();
+		TestPacket tp = pollTestPacket(node);
+		try {
+			boolean staged;
+			try {
+				staged = stager.commit(node, tp);
+			} catch (IOException e) {
+				// a failed prefetch only means the files are copied as usual
+				e.printStackTrace(listener.getLogger());
+				staged = false;
+			}
+			RemoteExecution execution = dispatchTestPacket(node, tp, staged);
+			running.put(node, execution);
+			monitor.watch(node, execution, tp);
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			if (isOnline(node)) {
+				throw e;
+			}
+			synchronized (this) {
+				pending.addFirst(tp);
+			}
+			markLost(node, e);
+		}
+	}
+
+	/**
+	 * Used to prefetch an unreserved pending {@link TestPacket} for each busy
+	 * {@link Node} without one.
+	 */
+	private void prefetchNext() {
+		List<Node> busyNodes;
+		synchronized (running) {
+			busyNodes = new ArrayList<Node>(running.keySet());
+		}
+		for (Node busyNode : busyNodes) {
+			TestPacket next = getUnreservedTestPacket();
+			if (next == null) {
+				break;
+			}
+			if (stager.getPrefetched(busyNode) == null) {
+				stager.prefetch(busyNode, next);
+			}
+		}
+	}
+
+	/**
+	 * Used to collect the test results of a completed process. The
+	 * {@link Node} becomes idle again, unless it was lost - then the
+	 * unfinished {@link TestPacket} is put back to the pending ones.
+	 * 
+	 * @param completion
+	 *            the {@link Completion} of the process
+	 * @throws Exception
+	 */
+	private void collectCompletion(Completion completion) throws Exception {
+		if (completion.isWakeUp()) {
+			preemptRunning();
+			joinFreeNodes();
+			return;
+		}
+		Node node = completion.getNode();
+		TestPacket tp = completion.getTestPacket();
+		running.remove(node);
+		if (completion.getResult() == null && completion.getError() == null) {
+			// skipped after the execution was stopped
+			makeIdle(node);
+			return;
+		}
+		if (completion.getError() != null) {
+			if (isOnline(node)) {
+				throw completion.getError();
+			}
+			if (!stopped) {
+				synchronized (this) {
+					pending.addFirst(tp);
+				}
+			}
+			markLost(node, completion.getError());
+			return;
+		}
+		// the passed test cases are taken out of the packet once recorded
+		long packetTimeout = completion.getResult().isTimedOut() ? timeouts
+				.getPacketTimeout(tp) : 0;
+		try {
+			collectTestResults(node, tp, completion.getResult());
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (Exception e) {
+			if (isOnline(node)) {
+				throw e;
+			}
+			// the results are already in the history
+			markLost(node, e);
+			return;
+		}
+		if (completion.getResult().isTimedOut()) {
+			recordTimeout(node, tp, completion.getResult(), packetTimeout);
+		}
+		if (retries > 0) {
+			recordFailures(node, tp, completion.getResult());
+		}
+		if (failFast && !stopped) {
+			String failure = getFailure(completion.getResult());
+			if (failure != null) {
+				stop(node, failure);
+			}
+		}
+		if (preempting.remove(node)) {
+			int requeued = stopped ? 0 : requeueUnfinished(tp,
+					completion.getResult());
+			if (NodeBroker.reclaim(this, node, true)) {
+				removeNode(node);
+				PrintMessages.printNodePreempted(listener.getLogger(),
+						node.getDisplayName(), requeued);
+				return;
+			}
+		}
+		makeIdle(node);
+	}
+
+	/**
+	 * Used to kill the {@link TestPacket}s in progress on the {@link Node}s
+	 * reclaimed by a queued build with a higher priority, which waits longer
+	 * than the preemption grace period. At least one {@link Node} is kept.
+	 * 
+	 * @throws InterruptedException
+	 */
+	private void preemptRunning() throws InterruptedException {
+		List<Node> busyNodes;
+		synchronized (running) {
+			busyNodes = new ArrayList<Node>(running.keySet());
+		}
+		for (Node node : busyNodes) {
+			if (preempting.contains(node)
+					|| getNumOfNodes() - preempting.size() <= 1
+					|| !NodeBroker.preemptRunning(this, node)) {
+				continue;
+			}
+			RemoteExecution execution = running.get(node);
+			try {
+				if (execution != null && execution.kill() != null) {
+					preempting.add(node);
+					continue;
+				}
+			} catch (IOException e) {
+				e.printStackTrace(listener.getLogger());
+			}
+			NodeBroker.withdraw(this, node);
+		}
+	}
+
+	/**
+	 * Used to put the test cases of a killed {@link TestPacket}, which didn't
+	 * complete, back in front of the pending ones. A {@link TestPacket} not
+	 * created from a {@link TestTable} is requeued as a whole.
+	 * 
+	 * @param tp
+	 *            the {@link TestPacket}
+	 * @param result
+	 *            its partial {@link PacketResult}
+	 * @return the number of requeued test cases
+	 */
+	private int requeueUnfinished(TestPacket tp, PacketResult result) {
+		TestTable table = tp.getTable();
+		if (table == null) {
+			synchronized (this) {
+				pending.addFirst(tp);
+			}
+			return tp.size();
+		}
+		Set<String> executed = new HashSet<String>();
+		for (TestOutcome outcome : result.getOutcomes()) {
+			executed.add(outcome.getName().toLowerCase());
+		}
+		List<Integer> unfinished = new ArrayList<Integer>();
+		double eet = 0;
+		for (int index : tp.getIndices()) {
+			if (!executed.contains(table.getName(index).toLowerCase())) {
+				unfinished.add(index);
+				eet += table.getEET(index);
+			}
+		}
+		if (unfinished.isEmpty()) {
+			return 0;
+		}
+		int[] indices = new int[unfinished.size()];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = unfinished.get(i);
+		}
+		synchronized (this) {
+			pending.addFirst(new TestPacket(table, indices, eet));
+		}
+		return indices.length;
+	}
+
+	/**
+	 * Used to stop using a {@link Node}, which is no longer reserved for the
+	 * build.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 */
+	private void removeNode(Node node) {
+		synchronized (this) {
+			nodes.remove(node);
+		}
+		stager.discard(node);
+	}
+
+	/**
+	 * Used to make a {@link Node} available for the next {@link TestPacket}.
+	 * The idle {@link Node}s stay reserved while any {@link TestPacket} is in
+	 * progress, since it's requeued if its {@link Node} is lost.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 */
+	private void makeIdle(Node node) {
+		if (NodeBroker.reclaim(this, node, false)) {
+			// Reclaimed by a queued build with a higher priority
+			removeNode(node);
+			PrintMessages.printNodePreempted(listener.getLogger(),
+					node.getDisplayName(), 0);
+			return;
+		}
+		idleNodes.add(node);
+		if (pending.isEmpty() && queuedTasks.isEmpty()
+				&& monitor.getRunning() == 0) {
+			// Nothing left for the idle nodes, kept until now in case a busy
+			// node got lost
+			Iterator<Node> idleIterator = idleNodes.iterator();
+			while (idleIterator.hasNext()) {
+				Node idle = idleIterator.next();
+				if (isReleasable(idle)) {
+					idleIterator.remove();
+					release(idle);
+				}
+			}
+		}
+		if (queued) {
+			synchronized (this) {
+				assignedNodes.remove(node);
+			}
+			// Let the queued packets take the node
+			Jenkins.getInstance().getQueue().scheduleMaintenance();
+		}
+	}
+
+	/**
+	 * Used to check if a {@link Node} may leave the build, once there is
+	 * nothing left to execute. The {@link Node}s not provisioned for the
+	 * build are kept for the retries of the failed test cases.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @return true if the {@link Node} may be released
+	 */
+	private boolean isReleasable(Node node) {
+		return retries == 0
+				|| (provisioner != null && provisioner.isProvisioned(node));
+	}
+
+	/**
+	 * Used to release a {@link Node}, which has nothing left to execute. A
+	 * provisioned {@link Node} is given back to its cloud, any other is
+	 * handed over to another build.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 */
+	private void release(Node node) {
+		removeNode(node);
+		NodeReservations.release(build, node);
+		if (provisioner != null && provisioner.isProvisioned(node)) {
+			provisioner.release(node);
+		} else {
+			AbstractBuild<?, ?> receiver = NodeBroker.handOver(node, build);
+			PrintMessages.printNodeHandedOver(listener.getLogger(),
+					node.getDisplayName(), (receiver != null) ? receiver
+							.getFullDisplayName() : null);
+		}
+	}
+
+	/**
+	 * Used to get the first failure of a {@link TestPacket}.
+	 * 
+	 * @param result
+	 *            the {@link PacketResult} of the {@link TestPacket}
+	 * @return the name of the first failed test case, or null if none failed
+	 */
+	private String getFailure(PacketResult result) {
+		for (TestOutcome outcome : result.getOutcomes()) {
+			if (!outcome.isPassed()) {
+				return outcome.getName();
+			}
+		}
+		return result.isTimedOut() ? "timeout" : null;
+	}
+
+	/**
+	 * Used to stop the execution on a failure - the pending
+	 * {@link TestPacket}s are dropped, the ones in progress are killed and the
+	 * build fails.
+	 * 
+	 * @param node
+	 *            the {@link Node} where the failure occurred
+	 * @param failure
+	 *            the failure
+	 * @throws InterruptedException
+	 */
+	private void stop(Node node, String failure) throws InterruptedException {
+		stopped = true;
+		PrintMessages.printFailFast(listener.getLogger(),
+				node.getDisplayName(), failure,
+				pending.size() + queuedTasks.size(), running.size());
+		synchronized (this) {
+			pending.clear();
+		}
+		cancelQueued();
+		killRunning();
+		build.setResult(Result.FAILURE);
+	}
+
+	/**
+	 * Used to kill the {@link TestPacket}s in progress on all {@link Node}s in
+	 * parallel. Their waiting completes with the partial results.
+	 * 
+	 * @throws InterruptedException
+	 */
+	private void killRunning() throws InterruptedException {
+		List<RemoteExecution> executions;
+		synchronized (running) {
+			executions = new ArrayList<RemoteExecution>(running.values());
+		}
+		List<Future<Void>> kills = new ArrayList<Future<Void>>();
+		for (RemoteExecution execution : executions) {
+			try {
+				Future<Void> kill = execution.kill();
+				if (kill != null) {
+					kills.add(kill);
+				}
+			} catch (IOException e) {
+				e.printStackTrace(listener.getLogger());
+			}
+		}
+		for (Future<Void> kill : kills) {
+			try {
+				kill.get(KILL_TIMEOUT, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Exception e) {
+				e.printStackTrace(listener.getLogger());
+			}
+		}
+	}
+
+	/**
+	 * Used to record the test cases of a {@link TestPacket} killed due to its
+	 * timeout. The first unfinished one timed out - it's recorded as failed
+	 * in the test results, as well as in the testing {@link History} with the
+	 * time it ran. The rest weren't executed - they're put back to the pending
+	 * ones, or recorded as skipped if the execution stops. The build becomes
+	 * unstable.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @param tp
+	 *            the {@link TestPacket}
+	 * @param result
+	 *            its {@link PacketResult}, the outcome of the timed out test
+	 *            case is added to it
+	 * @param packetTimeout
+	 *            the timeout of the {@link TestPacket} in seconds
+	 * @throws Exception
+	 */
+	private void recordTimeout(Node node, TestPacket tp, PacketResult result,
+			long packetTimeout) throws Exception {
+		Set<String> executed = new HashSet<String>();
+		double executedTime = 0;
+		for (TestOutcome outcome : result.getOutcomes()) {
+			executed.add(outcome.getName().toLowerCase());
+			executedTime += outcome.getTime();
+		}
+		List<Test> unfinished = new ArrayList<Test>();
+		for (TempTest tempTest : tp.getTests()) {
+			if (!executed.contains(tempTest.getTest().getName().toLowerCase())) {
+				unfinished.add(tempTest.getTest());
+			}
+		}
+		build.setResult(Result.UNSTABLE);
+		if (unfinished.isEmpty()) {
+			PrintMessages.printPacketTimedOut(listener.getLogger(),
+					node.getDisplayName(), null, 0, false);
+			return;
+		}
+
+		Test timedOut = unfinished.get(0);
+		double time = Math.max(packetTimeout - executedTime, 0);
+		result.getOutcomes().add(
+				new TestOutcome(timedOut.getName(), timedOut.getName(), time,
+						false));
+
+		// A preempted packet is requeued once it's released
+		boolean requeued = !failFast && !stopped && tp.getTable() != null;
+		if (requeued && !preempting.contains(node)) {
+			requeueUnfinished(tp, result);
+		}
+		PrintMessages.printPacketTimedOut(listener.getLogger(),
+				node.getDisplayName(), timedOut.getName(),
+				unfinished.size() - 1, requeued);
+
+		List<com.bombardier.plugin.statistics.Result> testcases = new ArrayList<com.bombardier.plugin.statistics.Result>();
+		TestCaseFail fail = new TestCaseFail();
+		fail.setName(timedOut.getName());
+		fail.setClassName(timedOut.getName());
+		fail.setTime(String.valueOf(time));
+		fail.setFailure(String.format("Timed out after %.0f seconds", time));
+		testcases.add(fail);
+		for (int i = requeued ? unfinished.size() : 1; i < unfinished.size(); i++) {
+			TestCaseSkipped skipped = new TestCaseSkipped();
+			skipped.setName(unfinished.get(i).getName());
+			skipped.setClassName(unfinished.get(i).getName());
+			skipped.setTime("0");
+			skipped.setSkipped("Not executed, the test packet timed out");
+			testcases.add(skipped);
+		}
+		TestSuite testSuite = new TestSuite();
+		testSuite.setName("timeouts");
+		testSuite.setTestcases(testcases);
+		TestSuites testSuites = new TestSuites();
+		testSuites.getTestsuite().add(testSuite);
+		FilePath tempStats = FilePathUtils.createTempFileInUserContent(
+				node.getDisplayName() + "timeouts", ".xml");
+		try {
+			HistoryAndStatsUtils.saveTestResults(testSuites, tempStats);
+			copyStatisticsToBuildNode(listener.getLogger(), node, tempStats);
+		} finally {
+			tempStats.delete();
+		}
+
+		timedOut.setSlaveName(node.getDisplayName());
+		timedOut.setCompletedOn(new Date());
+		timedOut.setExecutionTime(time);
+		timedOut.setTimedOut(true);
+		HistoryAndStatsUtils.addSingleTestToHistory(timedOut, historyMaxSize);
+	}
+
+	/**
+	 * Used to stop using a lost {@link Node}.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @param cause
+	 *            the reason
+	 */
+	private void markLost(Node node, Exception cause) {
+		lostNodes.add(node);
+		stager.discard(node);
+		if (preempting.remove(node)) {
+			NodeBroker.withdraw(this, node);
+		}
+		// Let the node join again once it's back
+		NodeReservations.release(build, node);
+		PrintMessages.printNodeLost(listener.getLogger(),
+				node.getDisplayName(), cause.getMessage(), nodes.size()
+						- lostNodes.size());
+	}
+
+	/**
+	 * Used to check if a {@link Node} is still usable.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @return true if the {@link Node} is online
+	 */
+	private boolean isOnline(Node node) {
+		Computer computer = node.toComputer();
+		return computer != null && computer.isOnline();
+	}
+
+	/**
+	 * Used to get the {@link Node}s lost during the execution.
+	 * 
+	 * @return the lost {@link Node}s
+	 */
+	public Set<Node> getLostNodes() {
+		return lostNodes;
+	}
+
+	/**
+	 * Used to take the next {@link TestPacket} for a {@link Node} from the
+	 * pending ones - the one prefetched for the {@link Node}, or else the
+	 * first one not prefetched for another {@link Node}. If all are
+	 * prefetched for other {@link Node}s, the first one is taken and its
+	 * prefetch is discarded. A retried {@link TestPacket} is taken by the
+	 * {@link Node} where it failed only if there is no other.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @return the {@link TestPacket}
+	 */
+	private TestPacket pollTestPacket(Node node) {
+		TestPacket prefetched = stager.getPrefetched(node);
+		synchronized (this) {
+			if (prefetched != null && pending.remove(prefetched)) {
+				return prefetched;
+			}
+		}
+		stager.discard(node);
+		TestPacket tp = null;
+		Node reserving = null;
+		synchronized (this) {
+			if (!retriedOn.isEmpty()) {
+				for (TestPacket retried : pending) {
+					if (!node.equals(retriedOn.get(retried))
+							&& stager.getReservingNode(retried) == null) {
+						tp = retried;
+						break;
+					}
+				}
+			}
+			if (tp == null) {
+				tp = getUnreservedTestPacket();
+			}
+			if (tp == null) {
+				tp = pending.getFirst();
+				reserving = stager.getReservingNode(tp);
+			}
+			pending.remove(tp);
+		}
+		if (reserving != null) {
+			stager.discard(reserving);
+		}
+		return tp;
+	}
+
+	/**
+	 * Used to get the first pending {@link TestPacket}, which is not
+	 * prefetched for any {@link Node}.
+	 * 
+	 * @return the {@link TestPacket} or null if there is no such
+	 */
+	private synchronized TestPacket getUnreservedTestPacket() {
+		for (TestPacket tp : pending) {
+			if (stager.getReservingNode(tp) == null) {
+				return tp;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Used to copy the files of a {@link TestPacket} to a {@link Node} and
+	 * start its execution there.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @param tp
+	 *            the {@link TestPacket} to be executed
+	 * @param staged
+	 *            true if the files of the {@link TestPacket} were already
+	 *            moved in place by the {@link PacketStager}
+	 * @return the {@link RemoteExecution} of the test packet
+	 * @throws Exception
+	 */
+	private RemoteExecution dispatchTestPacket(Node node, TestPacket tp,
+			boolean staged) throws Exception {
+		// Wait until the project folders and the runner are ready
+		RemoteRunner runner = preparer.awaitNode(node);
+
+		String projectOnRemote = FilePathUtils
+				.getPathToTestProjectWorkspaceOnNode(node, build).getRemote();
+
+		boolean copiedTestCases = staged;
+		boolean copiedListFile = staged;
+		if (!staged) {
+			List<FilePath> testCaseFiles = new ArrayList<FilePath>();
+			for (TempTest tempTest : tp.getTests()) {
+				testCaseFiles.add(tempTest.getTestFile());
+			}
+
+			// Copy the test cases to the Node
+			copiedTestCases = FilePathUtils.copyTestCasesToNode(node, build,
+					testCaseFiles);
+
+			// Copy the current test case suite to the node
+			copiedListFile = FilePathUtils.copyFileToNode(node,
+					tp.getTestList(), projectOnRemote);
+		}
+
+		// verify the file transfer
+		if (copiedTestCases && copiedListFile) {
+
+			PrintMessages.printPreBuildInfoSuccess(listener.getLogger(), node,
+					projectOnRemote);
+
+			// Create additional environment variables for the node
+			GenericEntry<Node, EnvVars> entry = NodeUtils.createEnvVarsForNode(
+					node, build, tp.getTestList().getName());
+			PrintMessages.printAdditionalNodeEnvVar(listener.getLogger(),
+					entry);
+
+			// Start the testing process
+			return runner.run(createProcessEnvironment(entry),
+					timeouts.getPacketTimeout(tp), listener);
+		} else {
+			throw PrintMessages.throwPreBuildInfoErrorCopyFiles(node);
+		}
+	}
+
+	/**
+	 * Used to create the environment of the testing process - the environment
+	 * variables of the {@link Node} and the additional ones, which names are
+	 * prefixed with '$'.
+	 * 
+	 * @param entry
+	 *            containing the {@link Node} and its additional
+	 *            {@link EnvVars}
+	 * @return the environment
+	 */
+	private EnvVars createProcessEnvironment(Entry<Node, EnvVars> entry) {
+		EnvVars environment = new EnvVars();
+		for (Entry<String, String> var : NodeUtils.getEnvironment(
+				entry.getKey(), entry.getValue()).entrySet()) {
+			String name = var.getKey();
+			environment.put(name.startsWith("$") ? name.substring(1) : name,
+					var.getValue());
+		}
+		return environment;
+	}
+
+	/**
+	 * Used to collect the test results from the Slave {@link Node}s by copying
+	 * the statistics file to a temporary file on the Master and then copy it to
+	 * the "building" {@link Node} and then delete it.
+	 * 
+	 * (Jenkins doesn't not support Slave to Slave file copying)
+	 * 
+	 * @param node
+	 *            the slave node
+	 * @param testPacket
+	 *            the node's {@link TestPacket}
+	 * @param result
+	 *            the {@link PacketResult} returned by the node's
+	 *            {@link RemoteRunner}
+	 * @throws Exception
+	 */
+	private void collectTestResults(Node node, TestPacket testPacket,
+			PacketResult result) throws Exception {
+		PrintStream stream = listener.getLogger();
+
+		// Save result statistics
+		saveToTestingHistory(stream, node.getDisplayName(), testPacket,
+				result.getOutcomes());
+
+		FilePath statsFile = FilePathUtils.getStatistics(node, build);
+		if (statsFile.exists()) {
+			FilePath tempStats = FilePathUtils.createTempFileInUserContent(
+					node.getDisplayName() + "statistics", ".xml");
+
+			// Copy statistics from the testing Node
+			tempStats.copyFrom(statsFile.read());
+
+			copyStatisticsToBuildNode(stream, node, tempStats);
+
+			// Delete the temporary created file
+			tempStats.delete();
+		} else {
+			PrintMessages.printNoResultToCollect(stream, node);
+		}
+	}
+
+	/**
+	 * Used to copy a statistics file, collected from a testing {@link Node},
+	 * to the workspace of the build on the building {@link Node}.
+	 * 
+	 * @param stream
+	 *            the print stream
+	 * @param node
+	 *            the testing {@link Node}
+	 * @param tempStats
+	 *            the statistics file on the Master
+	 * @throws Exception
+	 */
+	private void copyStatisticsToBuildNode(PrintStream stream, Node node,
+			FilePath tempStats) throws Exception {
+		boolean copied = FilePathUtils.copyFileToNode(
+				build.getBuiltOn(),
+				tempStats,
+				FilePathUtils.getPathToRootProjectWorkspaceOnNode(
+						build.getBuiltOn(), build).getRemote());
+
+		if (copied) {
+			PrintMessages.printCollectingTestResultInfo(build, stream, node);
+		} else {
+			PrintMessages.printNoResultToCollect(stream, node);
+		}
+	}
+
+	/**
+	 * Used to save the test results, read from a statistics file generated on
+	 * a testing {@link Node}, to the testing {@link History}.
+	 * 
+	 * @param stream
+	 *            the print stream
+	 * @param nodeName
+	 *            the {@link Node}'s name
+	 * @param testPacket
+	 *            the {@link TestPacket}
+	 * @param outcomes
+	 *            the outcome of each executed test case
+	 * @throws Exception
+	 */
+	private void saveToTestingHistory(PrintStream stream, String nodeName,
+			TestPacket testPacket, List<TestOutcome> outcomes) throws Exception {
+		for (TestOutcome outcome : outcomes) {
+			if (outcome.isPassed()) {
+				Iterator<TempTest> tempTestIterator = testPacket.getTests()
+						.iterator();
+				while (tempTestIterator.hasNext()) {
+					Test test = tempTestIterator.next().getTest();
+					if (test.getName().equalsIgnoreCase(outcome.getName())) {
+
+						test.setSlaveName(nodeName);
+						test.setCompletedOn(new Date());
+						test.setExecutionTime(outcome.getTime());
+
+						HistoryAndStatsUtils.addSingleTestToHistory(test,
+								historyMaxSize);
+
+						PrintMessages.printRecordingTestHistory(stream);
+						tempTestIterator.remove();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Represents a failed test case to be retried.
+	 */
+	private static class Failure {
+
+		private final TestTable table;
+		private final int index;
+		private final Node node;
+
+		private Failure(TestTable table, int index, Node node) {
+			this.table = table;
+			this.index = index;
+			this.node = node;
+		}
+	}
+}
@@ -0,0 +1,156 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.execution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.bombardier.plugin.history.History;
+import com.bombardier.plugin.history.Test;
+import com.bombardier.plugin.scheduling.TempTest;
+import com.bombardier.plugin.scheduling.TestPacket;
+
+/**
+ * Used to derive the timeouts of the test cases from the testing
+ * {@link History}. The timeout of a test case is a multiple of the 99th
+ * percentile of its recorded execution times, or of its Estimated execution
+ * time (EET) if it has no records, but never less than a floor. The timeout
+ * of a {@link TestPacket} is the sum of the timeouts of its test cases.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class TestTimeouts {
+
+	private static final double PERCENTILE = 0.99;
+
+	private final double multiplier;
+	private final double floor;
+	private final Map<String, Double> percentiles = new HashMap<String, Double>();
+
+	/**
+	 * Used to initialize an instance of the {@link TestTimeouts}.
+	 * 
+	 * @param history
+	 *            the testing {@link History}
+	 * @param multiplier
+	 *            the multiple of the 99th percentile, 0 disables the timeouts
+	 * @param floor
+	 *            the minimum timeout of a test case in seconds
+	 */
+	public TestTimeouts(History history, double multiplier, double floor) {
+		this.multiplier = multiplier;
+		this.floor = floor;
+		if (!isEnabled()) {
+			return;
+		}
+		Map<String, List<Double>> timesByName = new HashMap<String, List<Double>>();
+		for (Test test : history.getTests()) {
+			String name = test.getName().toLowerCase();
+			List<Double> times = timesByName.get(name);
+			if (times == null) {
+				times = new ArrayList<Double>();
+				timesByName.put(name, times);
+			}
+			times.add(test.getExecutionTime());
+		}
+		for (Entry<String, List<Double>> entry : timesByName.entrySet()) {
+			percentiles.put(entry.getKey(), getPercentile(entry.getValue()));
+		}
+	}
+
+	/**
+	 * Used to check if the timeouts are enabled.
+	 * 
+	 * @return true if enabled
+	 */
+	public boolean isEnabled() {
+		return multiplier > 0;
+	}
+
+	/**
+	 * Used to get the timeout of a test case.
+	 * 
+	 * @param name
+	 *            the name of the test case
+	 * @param eet
+	 *            the EET of the test case, used if it has no records
+	 * @return the timeout in seconds, or 0 if the timeouts are disabled
+	 */
+	public double getTestTimeout(String name, double eet) {
+		if (!isEnabled()) {
+			return 0;
+		}
+		Double percentile = percentiles.get(name.toLowerCase());
+		return Math.max(multiplier * (percentile != null ? percentile : eet),
+				floor);
+	}
+
+	/**
+	 * Used to get the timeout of a {@link TestPacket}. The EET of the
+	 * {@link TestPacket} is divided evenly between its test cases without
+	 * records.
+	 * 
+	 * @param testPacket
+	 *            the {@link TestPacket}
+	 * @return the timeout in seconds, or 0 if the timeouts are disabled
+	 */
+	public long getPacketTimeout(TestPacket testPacket) {
+		if (!isEnabled()) {
+			return 0;
+		}
+		List<TempTest> tests = testPacket.getTests();
+		double eet = tests.isEmpty() ? 0 : testPacket.getTotalEET()
+				/ tests.size();
+		double timeout = 0;
+		for (TempTest tempTest : tests) {
+			timeout += getTestTimeout(tempTest.getTest().getName(), eet);
+		}
+		return (long) Math.ceil(timeout);
+	}
+
+	/**
+	 * Used to get the 99th percentile, by the nearest rank, of execution
+	 * times.
+	 * 
+	 * @param times
+	 *            the execution times
+	 * @return the percentile
+	 */
+	private static double getPercentile(List<Double> times) {
+		double[] sorted = new double[times.size()];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = times.get(i);
+		}
+		Arrays.sort(sorted);
+		int rank = (int) Math.ceil(PERCENTILE * sorted.length);
+		return sorted[Math.max(rank - 1, 0)];
+	}
+}
@@ -69,6 +69,9 @@ public class Test {
 	@XmlElement(name = "execution-time-in-seconds")
 	private double executionTime;
 
+	@XmlAttribute(name = "timedOut")
+	private Boolean timedOut;
+
 	/**
 	 * Used to get the name
 	 * @return the name
@@ -176,4 +179,23 @@ public class Test {
 	public void setSlaveName(String slaveName) {
 		this.slaveName = slaveName;
 	}
+
+	/**
+	 * Used to check if the test timed out - its execution time is then only
+	 * the time it ran until it was killed.
+	 * @return true if it timed out
+	 * @since 1.1
+	 */
+	public boolean isTimedOut() {
+		return timedOut != null && timedOut;
+	}
+
+	/**
+	 * Used to mark the test as timed out
+	 * @param timedOut true if it timed out
+	 * @since 1.1
+	 */
+	public void setTimedOut(boolean timedOut) {
+		this.timedOut = timedOut ? Boolean.TRUE : null;
+	}
 }
\ No newline at end of file
@@ -90,6 +90,70 @@ public class PrintMessages {
 				.println("[BUILD-INFO]\n	Recording test result to the testing history!");
 	}
 
+	/**
+	 * Used to print a message indicating that the schedule has been reused
+	 * from the schedule cache, since the test case list hasn't changed.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @since 1.1
+	 */
+	public static void printScheduleReusedFromCache(PrintStream printStream) {
+		printStream
+				.println("[PREBUILD-INFO]\n	The test case list hasn't changed, reusing the cached schedule!");
+	}
+
+	/**
+	 * Used to print a message indicating that the EETs of the cached schedule
+	 * have been re-estimated from the current testing history.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @since 1.1
+	 */
+	public static void printScheduleReestimated(PrintStream printStream) {
+		printStream
+				.println("[PREBUILD-INFO]\n	New test results were recorded, re-estimating the cached schedule!");
+	}
+
+	/**
+	 * Used to print a message indicating that the cached schedule has been
+	 * repaired with the test cases that were added, removed or modified.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param added
+	 *            the number of added or modified test cases
+	 * @param removed
+	 *            the number of removed or modified test cases
+	 * @since 1.1
+	 */
+	public static void printScheduleRepaired(PrintStream printStream,
+			int added, int removed) {
+		printStream.printf("[PREBUILD-INFO]%n Repairing the cached schedule!%n"
+				+ "  [ADDED] %d test cases%n" + "  [REMOVED] %d test cases%n",
+				added, removed);
+	}
+
+	/**
+	 * Used to print how many test cases were taken from the metadata cache
+	 * and how many had to be scanned.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param cached
+	 *            the number of unchanged test cases
+	 * @param scanned
+	 *            the number of new or modified test cases
+	 * @since 1.1
+	 */
+	public static void printTestMetadataUsage(PrintStream printStream,
+			int cached, int scanned) {
+		printStream.printf("[PREBUILD-INFO]%n Reading the test cases!%n"
+				+ "  [UNCHANGED] %d test cases%n"
+				+ "  [SCANNED] %d test cases%n", cached, scanned);
+	}
+
 	/**
 	 * Used to print the Node where the script will be executed.
 	 * 
@@ -164,6 +228,298 @@ public class PrintMessages {
 						+ "  [FOR] Slave Node: %s%n", node.getDisplayName());
 	}
 
+	/**
+	 * Used to print a message indicating that the connection to a Slave
+	 * {@link Node} executing a test packet was lost.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param nodeName
+	 *            the name of the Slave {@link Node}
+	 * @since 1.1
+	 */
+	public static void printNodeDisconnected(PrintStream printStream,
+			String nodeName) {
+		printStream.printf("[BUILD-INFO]%n The connection was lost, waiting "
+				+ "for the Slave Node to reconnect!%n"
+				+ "  [FOR] Slave Node: %s%n", nodeName);
+	}
+
+	/**
+	 * Used to print a message indicating that the Master was reattached to
+	 * a test packet still executed on a reconnected Slave {@link Node}.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param nodeName
+	 *            the name of the Slave {@link Node}
+	 * @since 1.1
+	 */
+	public static void printNodeReattached(PrintStream printStream,
+			String nodeName) {
+		printStream.printf("[BUILD-INFO]%n Reattached to the test packet in "
+				+ "progress!%n" + "  [FOR] Slave Node: %s%n", nodeName);
+	}
+
+	/**
+	 * Used to print a message indicating that a test packet exceeded its
+	 * timeout and was killed.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param nodeName
+	 *            the name of the Slave {@link Node}
+	 * @param timedOutTest
+	 *            the name of the test case, which timed out, or null if
+	 *            unknown
+	 * @param numOfNotExecuted
+	 *            the number of test cases, which weren't executed
+	 * @param requeued
+	 *            true if the test cases, which weren't executed, are put
+	 *            back to the pending ones
+	 * @since 1.1
+	 */
+	public static void printPacketTimedOut(PrintStream printStream,
+			String nodeName, String timedOutTest, int numOfNotExecuted,
+			boolean requeued) {
+		printStream.printf("[BUILD-INFO]%n The test packet exceeded its "
+				+ "timeout and was killed!%n" + "  Timed out: %s%n"
+				+ "  %s: %d test case(s)%n"
+				+ "  [FOR] Slave Node: %s%n", (timedOutTest != null) ? timedOutTest
+				: "-", requeued ? "Requeued" : "Not executed", numOfNotExecuted,
+				nodeName);
+	}
+
+	/**
+	 * Used to print a message indicating that the execution is stopped due to
+	 * a failure in the fail-fast mode.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param nodeName
+	 *            the name of the Slave {@link Node}
+	 * @param failure
+	 *            the failed test case
+	 * @param numOfSkipped
+	 *            the number of test packets, which won't be executed
+	 * @param numOfKilled
+	 *            the number of test packets in progress, which are killed
+	 * @since 1.1
+	 */
+	public static void printFailFast(PrintStream printStream,
+			String nodeName, String failure, int numOfSkipped, int numOfKilled) {
+		printStream.printf("[BUILD-INFO]%n Fail-fast: stopping the execution "
+				+ "after the failure of %s!%n"
+				+ "  Skipped: %d test packet(s), killed: %d test packet(s)%n"
+				+ "  [FOR] Slave Node: %s%n", failure, numOfSkipped,
+				numOfKilled, nodeName);
+	}
+
+	/**
+	 * Used to print a message indicating that the failed test cases are
+	 * retried.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param numOfTests
+	 *            the number of failed test cases
+	 * @param retry
+	 *            the number of the retry
+	 * @since 1.1
+	 */
+	public static void printRetryingTests(PrintStream printStream,
+			int numOfTests, int retry) {
+		printStream.printf("[BUILD-INFO]%n Retrying %d failed test case(s), "
+				+ "retry #%d!%n", numOfTests, retry);
+	}
+
+	/**
+	 * Used to print the test cases, which passed only on a retry.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param flakyTests
+	 *            the names of the test cases
+	 * @since 1.1
+	 */
+	public static void printFlakyTests(PrintStream printStream,
+			List<String> flakyTests) {
+		printStream.printf("[BUILD-INFO]%n %d flaky test case(s) passed on a "
+				+ "retry: %s%n", flakyTests.size(), flakyTests);
+	}
+
+	/**
+	 * Used to print a message indicating that the build was aborted.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @since 1.1
+	 */
+	public static void printBuildAborted(PrintStream printStream) {
+		printStream.printf("[BUILD-INFO]%n The build was aborted!%n");
+	}
+
+	/**
+	 * Used to print a message indicating that the test packets in progress
+	 * are killed, because the build was aborted or failed.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param numOfPackets
+	 *            the number of test packets in progress
+	 * @since 1.1
+	 */
+	public static void printKillingTestPackets(PrintStream printStream,
+			int numOfPackets) {
+		printStream.printf("[BUILD-INFO]%n Killing %d test packet(s) in "
+				+ "progress on the Slave Nodes!%n", numOfPackets);
+	}
+
+	/**
+	 * Used to print a message indicating that a Slave {@link Node} was lost
+	 * and its unfinished test packet will be executed by the remaining ones.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param nodeName
+	 *            the name of the Slave {@link Node}
+	 * @param cause
+	 *            the reason
+	 * @param numOfRemaining
+	 *            the number of remaining Slave {@link Node}s
+	 * @since 1.1
+	 */
+	public static void printNodeLost(PrintStream printStream, String nodeName,
+			String cause, int numOfRemaining) {
+		printStream.printf("[BUILD-INFO]%n The Slave Node was lost (%s), its "
+				+ "unfinished tests are requeued for the remaining %d!%n"
+				+ "  [FOR] Slave Node: %s%n", cause, numOfRemaining, nodeName);
+	}
+
+	/**
+	 * Used to print a message indicating that a Slave {@link Node}, which
+	 * became free during the build, joined the testing.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param nodeName
+	 *            the name of the Slave {@link Node}
+	 * @param numOfNodes
+	 *            the number of Slave {@link Node}s used by the build now
+	 * @since 1.1
+	 */
+	public static void printNodeJoined(PrintStream printStream,
+			String nodeName, int numOfNodes) {
+		printStream.printf("[BUILD-INFO]%n The Slave Node became free and "
+				+ "joined the testing, %d are used now!%n"
+				+ "  [FOR] Slave Node: %s%n", numOfNodes, nodeName);
+	}
+
+	/**
+	 * Used to print a message indicating that a Slave {@link Node}, which has
+	 * no test packet left, was handed over to another build.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param nodeName
+	 *            the name of the Slave {@link Node}
+	 * @param buildName
+	 *            the name of the receiving build, or null if the
+	 *            {@link Node} is left to the queued builds
+	 * @since 1.1
+	 */
+	public static void printNodeHandedOver(PrintStream printStream,
+			String nodeName, String buildName) {
+		printStream.printf("[BUILD-INFO]%n No test packet is left for the "
+				+ "Slave Node, releasing it to %s!%n"
+				+ "  [FOR] Slave Node: %s%n",
+				(buildName != null) ? buildName : "the queued builds",
+				nodeName);
+	}
+
+	/**
+	 * Used to print a message indicating that a Slave {@link Node} was
+	 * reclaimed by a queued build with a higher priority.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param nodeName
+	 *            the name of the Slave {@link Node}
+	 * @param numOfRequeued
+	 *            the number of unfinished test cases put back to the pending
+	 *            ones
+	 * @since 1.1
+	 */
+	public static void printNodePreempted(PrintStream printStream,
+			String nodeName, int numOfRequeued) {
+		printStream.printf("[BUILD-INFO]%n The Slave Node was reclaimed by a "
+				+ "build with a higher priority, %d unfinished tests are "
+				+ "requeued!%n  [FOR] Slave Node: %s%n", numOfRequeued,
+				nodeName);
+	}
+
+	/**
+	 * Used to print a message indicating that extra Slave {@link Node}s were
+	 * requested from a cloud, to finish the testing within the target
+	 * duration.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param cloudName
+	 *            the name of the cloud
+	 * @param numOfNodes
+	 *            the number of requested Slave {@link Node}s
+	 * @param totalEET
+	 *            the total estimated execution time in seconds
+	 * @param targetDuration
+	 *            the target duration in seconds
+	 * @since 1.1
+	 */
+	public static void printProvisioningNodes(PrintStream printStream,
+			String cloudName, int numOfNodes, double totalEET,
+			double targetDuration) {
+		printStream.printf("[BUILD-INFO]%n Requested %d extra Slave Nodes "
+				+ "(estimated work: %.0f s, target duration: %.0f s)!%n"
+				+ "  [FROM] Cloud: %s%n", numOfNodes, totalEET,
+				targetDuration, cloudName);
+	}
+
+	/**
+	 * Used to print a message indicating that a requested Slave {@link Node}
+	 * couldn't be provisioned.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param nodeName
+	 *            the name of the planned Slave {@link Node}
+	 * @param cause
+	 *            the reason
+	 * @since 1.1
+	 */
+	public static void printProvisioningFailed(PrintStream printStream,
+			String nodeName, String cause) {
+		printStream.printf("[BUILD-INFO]%n The Slave Node couldn't be "
+				+ "provisioned (%s)!%n  [FOR] Slave Node: %s%n", cause,
+				nodeName);
+	}
+
+	/**
+	 * Used to print a message indicating that a provisioned Slave
+	 * {@link Node} is released, as no test packet is left for it.
+	 * 
+	 * @param printStream
+	 *            the print stream
+	 * @param nodeName
+	 *            the name of the Slave {@link Node}
+	 * @since 1.1
+	 */
+	public static void printReleasingNode(PrintStream printStream,
+			String nodeName) {
+		printStream.printf("[BUILD-INFO]%n No test packet is left for the "
+				+ "provisioned Slave Node, releasing it!%n"
+				+ "  [FOR] Slave Node: %s%n", nodeName);
+	}
+
 	/**
 	 * Used to print a success message indicating that the test case suite
 	 * generation and the copying of relevant files was successful.
@@ -299,4 +655,48 @@ public class PrintMessages {
 				"[PREBUILD-ERROR]"
 						+ "\nThere was a problem during the generation of the Slave Node specific test case list.");
 	};
+
+	/**
+	 * Used to throw an {@link Exception} due to that a Slave {@link Node}
+	 * didn't reconnect while executing a test packet.
+	 * 
+	 * @param nodeName
+	 *            the name of the Slave {@link Node}
+	 * @param timeout
+	 *            the time waited for the reconnection in seconds
+	 * @return the exception
+	 * @since 1.1
+	 */
+	public static Exception throwNodeLost(String nodeName, long timeout) {
+		return new Exception("[BUILD-ERROR]\nThe Slave Node " + nodeName
+				+ " didn't reconnect within " + timeout + " seconds.");
+	}
+
+	/**
+	 * Used to throw an {@link Exception} due to that a Slave {@link Node} was
+	 * removed while executing a test packet.
+	 * 
+	 * @param nodeName
+	 *            the name of the Slave {@link Node}
+	 * @return the exception
+	 * @since 1.1
+	 */
+	public static Exception throwNodeRemoved(String nodeName) {
+		return new Exception("[BUILD-ERROR]\nThe Slave Node " + nodeName
+				+ " was removed.");
+	}
+
+	/**
+	 * Used to throw an {@link Exception} due to that all Slave {@link Node}s
+	 * were lost before all test packets were executed.
+	 * 
+	 * @param numOfPending
+	 *            the number of test packets not executed
+	 * @return the exception
+	 * @since 1.1
+	 */
+	public static Exception throwAllNodesLost(int numOfPending) {
+		return new Exception("[BUILD-ERROR]\nAll Slave Nodes were lost, "
+				+ numOfPending + " test packet(s) could not be executed.");
+	}
 }
@@ -0,0 +1,229 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.provisioning;
+
+import hudson.model.BuildListener;
+import hudson.model.Computer;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.slaves.AbstractCloudSlave;
+import hudson.slaves.Cloud;
+import hudson.slaves.NodeProvisioner.PlannedNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import jenkins.model.Jenkins;
+
+import com.bombardier.plugin.misc.PrintMessages;
+import com.bombardier.plugin.scheduling.TestPacket;
+
+/**
+ * Used to request extra Slave {@link Node}s for a build from the configured
+ * {@link Cloud}s, when the estimated execution time of its
+ * {@link TestPacket}s spread over the available {@link Node}s exceeds the
+ * target duration of the job. The provisioned {@link Node}s are added to
+ * Jenkins as soon as they are ready and join the testing like any other
+ * {@link Node} becoming free. They are released as soon as there is no
+ * pending {@link TestPacket} left for them, and at the end of the build at
+ * the latest.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class CloudProvisioner {
+
+	private final BuildListener listener;
+	private final Label label;
+	private final List<PlannedNode> plannedNodes = new ArrayList<PlannedNode>();
+	private final Set<String> provisioned = new HashSet<String>();
+
+	/**
+	 * Used to initialize an instance of the {@link CloudProvisioner}.
+	 * 
+	 * @param listener
+	 *            the build's listener
+	 * @param label
+	 *            the {@link Label} of the {@link Node}s to be provisioned
+	 */
+	public CloudProvisioner(BuildListener listener, Label label) {
+		this.listener = listener;
+		this.label = label;
+	}
+
+	/**
+	 * Used to request the number of extra {@link Node}s needed to execute
+	 * the {@link TestPacket}s within the target duration.
+	 * 
+	 * @param testPackets
+	 *            the {@link TestPacket}s
+	 * @param numOfNodes
+	 *            the number of {@link Node}s available to the build
+	 * @param targetDuration
+	 *            the target duration in seconds
+	 */
+	public void provision(List<TestPacket> testPackets, int numOfNodes,
+			double targetDuration) {
+		double totalEET = 0;
+		for (TestPacket tp : testPackets) {
+			totalEET += tp.getTotalEET();
+		}
+		int missing = (int) Math.ceil(totalEET / targetDuration) - numOfNodes;
+		// A node can't take more than one packet
+		missing = Math.min(missing, testPackets.size() - numOfNodes);
+		for (Cloud cloud : Jenkins.getInstance().clouds) {
+			if (missing <= 0) {
+				break;
+			}
+			if (!cloud.canProvision(label)) {
+				continue;
+			}
+			Collection<PlannedNode> planned = cloud.provision(label, missing);
+			PrintMessages.printProvisioningNodes(listener.getLogger(),
+					cloud.getDisplayName(), planned.size(), totalEET,
+					targetDuration);
+			for (PlannedNode plannedNode : planned) {
+				addWhenReady(plannedNode);
+			}
+			missing -= planned.size();
+		}
+	}
+
+	/**
+	 * Used to add a provisioned {@link Node} to Jenkins in the background as
+	 * soon as it's ready.
+	 * 
+	 * @param plannedNode
+	 *            the {@link PlannedNode}
+	 */
+	private void addWhenReady(final PlannedNode plannedNode) {
+		synchronized (this) {
+			plannedNodes.add(plannedNode);
+		}
+		Computer.threadPoolForRemoting.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Node node = plannedNode.future.get();
+					synchronized (CloudProvisioner.this) {
+						if (!plannedNodes.remove(plannedNode)) {
+							// released meanwhile
+							terminate(node);
+							return;
+						}
+						provisioned.add(node.getNodeName());
+					}
+					if (Jenkins.getInstance().getNode(node.getNodeName()) == null) {
+						Jenkins.getInstance().addNode(node);
+					}
+				} catch (Exception e) {
+					synchronized (CloudProvisioner.this) {
+						plannedNodes.remove(plannedNode);
+					}
+					PrintMessages.printProvisioningFailed(
+							listener.getLogger(), plannedNode.displayName,
+							e.getMessage());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Used to check if a {@link Node} was provisioned for the build.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @return true if provisioned
+	 */
+	public synchronized boolean isProvisioned(Node node) {
+		return provisioned.contains(node.getNodeName());
+	}
+
+	/**
+	 * Used to release a provisioned {@link Node}.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 */
+	public void release(Node node) {
+		synchronized (this) {
+			if (!provisioned.remove(node.getNodeName())) {
+				return;
+			}
+		}
+		PrintMessages.printReleasingNode(listener.getLogger(),
+				node.getDisplayName());
+		terminate(node);
+	}
+
+	/**
+	 * Used to release all provisioned {@link Node}s and cancel the ones not
+	 * ready yet.
+	 */
+	public void shutdown() {
+		List<String> names;
+		synchronized (this) {
+			for (PlannedNode plannedNode : plannedNodes) {
+				plannedNode.future.cancel(true);
+			}
+			plannedNodes.clear();
+			names = new ArrayList<String>(provisioned);
+		}
+		for (String name : names) {
+			Node node = Jenkins.getInstance().getNode(name);
+			if (node != null) {
+				release(node);
+			}
+		}
+	}
+
+	/**
+	 * Used to remove a provisioned {@link Node} from Jenkins, in the
+	 * background.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 */
+	private void terminate(final Node node) {
+		Computer.threadPoolForRemoting.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (node instanceof AbstractCloudSlave) {
+						((AbstractCloudSlave) node).terminate();
+					} else {
+						Jenkins.getInstance().removeNode(node);
+					}
+				} catch (Exception e) {
+					e.printStackTrace(listener.getLogger());
+				}
+			}
+		});
+	}
+}
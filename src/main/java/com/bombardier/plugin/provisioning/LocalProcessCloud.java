@@ -0,0 +1,243 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.provisioning;
+
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.Descriptor;
+import hudson.model.Descriptor.FormException;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.remoting.Which;
+import hudson.slaves.AbstractCloudComputer;
+import hudson.slaves.AbstractCloudSlave;
+import hudson.slaves.Cloud;
+import hudson.slaves.CloudRetentionStrategy;
+import hudson.slaves.JNLPLauncher;
+import hudson.slaves.NodeProperty;
+import hudson.slaves.NodeProvisioner.PlannedNode;
+import hudson.slaves.SlaveComputer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jenkins.model.Jenkins;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * A stand-in {@link Cloud}, which provisions JNLP Slave {@link Node}s as
+ * local processes on the Master. It's used to try out and test the
+ * provisioning of extra {@link Node}s for the testing without a real cloud.
+ * The agents connect back through the JNLP port, which must be enabled, and
+ * their processes are destroyed when the {@link Node}s are terminated.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class LocalProcessCloud extends Cloud {
+
+	/**
+	 * The number of minutes a forgotten agent stays idle before it's
+	 * terminated.
+	 */
+	private static final int IDLE_MINUTES = 10;
+
+	private static final AtomicInteger NUM_OF_AGENTS = new AtomicInteger();
+	private static final Map<String, Process> PROCESSES = new ConcurrentHashMap<String, Process>();
+
+	private final String labelString;
+	private final int maxAgents;
+
+	@DataBoundConstructor
+	public LocalProcessCloud(String name, String labelString, int maxAgents) {
+		super(name);
+		this.labelString = labelString;
+		this.maxAgents = maxAgents;
+	}
+
+	public String getLabelString() {
+		return labelString;
+	}
+
+	public int getMaxAgents() {
+		return maxAgents;
+	}
+
+	@Override
+	public boolean canProvision(Label label) {
+		return label != null && label.matches(Label.parse(labelString));
+	}
+
+	@Override
+	public Collection<PlannedNode> provision(Label label, int excessWorkload) {
+		List<PlannedNode> planned = new ArrayList<PlannedNode>();
+		int available = maxAgents - countAgents();
+		for (int i = 0; i < Math.min(excessWorkload, available); i++) {
+			final String agentName = nextAgentName();
+			planned.add(new PlannedNode(agentName,
+					Computer.threadPoolForRemoting.submit(new Callable<Node>() {
+						@Override
+						public Node call() throws Exception {
+							return launch(agentName);
+						}
+					}), 1));
+		}
+		return planned;
+	}
+
+	/**
+	 * Used to create an agent, start its process and wait until it's online.
+	 * 
+	 * @param agentName
+	 *            the name of the agent
+	 * @return the agent
+	 * @throws Exception
+	 */
+	private LocalAgent launch(String agentName) throws Exception {
+		File home = new File(new File(Jenkins.getInstance().getRootDir(),
+				"local-agents"), agentName);
+		if (!home.isDirectory() && !home.mkdirs()) {
+			throw new IOException("Cannot create " + home);
+		}
+		String rootUrl = Jenkins.getInstance().getRootUrl();
+		if (rootUrl == null) {
+			throw new IllegalStateException("The Jenkins URL is not configured");
+		}
+
+		LocalAgent agent = new LocalAgent(agentName, home.getAbsolutePath(),
+				labelString);
+		Jenkins.getInstance().addNode(agent);
+		SlaveComputer computer = (SlaveComputer) agent.toComputer();
+
+		ProcessBuilder builder = new ProcessBuilder(
+				System.getProperty("java.home") + File.separator + "bin"
+						+ File.separator + "java", "-cp", Which.jarFile(
+						hudson.remoting.Launcher.class).getAbsolutePath(),
+				"hudson.remoting.jnlp.Main", "-headless", "-url", rootUrl,
+				computer.getJnlpMac(), agentName);
+		builder.directory(home);
+		builder.redirectErrorStream(true);
+		builder.redirectOutput(new File(home, "agent.log"));
+		PROCESSES.put(agentName, builder.start());
+
+		computer.waitUntilOnline();
+		return agent;
+	}
+
+	/**
+	 * Used to generate the name of the next agent, not used by any
+	 * {@link Node} yet.
+	 * 
+	 * @return the name
+	 */
+	private String nextAgentName() {
+		String agentName;
+		do {
+			agentName = name + "-" + NUM_OF_AGENTS.incrementAndGet();
+		} while (Jenkins.getInstance().getNode(agentName) != null);
+		return agentName;
+	}
+
+	/**
+	 * Used to count the agents of this {@link Cloud}.
+	 * 
+	 * @return the number of agents
+	 */
+	private int countAgents() {
+		int count = 0;
+		for (Node node : Jenkins.getInstance().getNodes()) {
+			if (node instanceof LocalAgent
+					&& node.getNodeName().startsWith(name + "-")) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * A Slave {@link Node} running as a local process.
+	 * 
+	 * @since 1.1
+	 */
+	public static class LocalAgent extends AbstractCloudSlave {
+
+		private static final long serialVersionUID = 1L;
+
+		public LocalAgent(String name, String remoteFS, String labelString)
+				throws FormException, IOException {
+			super(name, "Local testing agent", remoteFS, "1",
+					Mode.EXCLUSIVE, labelString, new JNLPLauncher(),
+					new CloudRetentionStrategy(IDLE_MINUTES), Collections
+							.<NodeProperty<?>> emptyList());
+		}
+
+		@Override
+		public AbstractCloudComputer<LocalAgent> createComputer() {
+			return new AbstractCloudComputer<LocalAgent>(this);
+		}
+
+		@Override
+		protected void _terminate(TaskListener listener) throws IOException,
+				InterruptedException {
+			Process process = PROCESSES.remove(getNodeName());
+			if (process != null) {
+				process.destroy();
+			}
+		}
+
+		@Extension
+		public static class DescriptorImpl extends SlaveDescriptor {
+
+			@Override
+			public String getDisplayName() {
+				return "Local testing agent";
+			}
+
+			@Override
+			public boolean isInstantiable() {
+				return false;
+			}
+		}
+	}
+
+	@Extension
+	public static class DescriptorImpl extends Descriptor<Cloud> {
+
+		@Override
+		public String getDisplayName() {
+			return "Local processes (distributed testing)";
+		}
+	}
+}
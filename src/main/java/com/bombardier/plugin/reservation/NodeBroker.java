@@ -0,0 +1,402 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.reservation;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Computer;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.model.Queue;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import jenkins.model.Jenkins;
+
+import com.bombardier.plugin.DTJob;
+import com.bombardier.plugin.execution.NodeWatcher;
+import com.bombardier.plugin.execution.TestDispatcher;
+
+/**
+ * Used to share the Slave {@link Node}s of a {@link Label} between the
+ * concurrent builds of the {@link DTJob}s using it. Each build, running or
+ * queued, is entitled to a fair share of the online {@link Node}s of the
+ * {@link Label}, in proportion to the share weight of its {@link DTJob}, and
+ * doesn't reserve more {@link Node}s than that while others wait for them.
+ * A {@link Node} released by a build running out of test packets is handed
+ * straight to the running build furthest below its fair share, or else left
+ * to the queued builds.
+ * <p>
+ * A queued build waiting for {@link Node}s may also reclaim them from the
+ * running builds of {@link DTJob}s with a lower priority: each of them gives
+ * up its {@link Node}s at the end of their test packets, and if the queued
+ * build still waits after the preemption grace period, the test packets in
+ * progress are killed and their unfinished test cases requeued. The
+ * preempted builds continue on fewer {@link Node}s, at least one.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class NodeBroker {
+
+	/**
+	 * The time, in seconds, a queued build waits for the {@link Node}s
+	 * reclaimed at the end of the test packets, before the test packets in
+	 * progress are killed. Can be overridden with the system property
+	 * "com.bombardier.plugin.reservation.NodeBroker.preemptionGrace".
+	 */
+	public static final long PREEMPTION_GRACE = Long.getLong(
+			NodeBroker.class.getName() + ".preemptionGrace", 300);
+
+	private static final Map<Long, Demand> DEMANDS = new LinkedHashMap<Long, Demand>();
+
+	/**
+	 * Used to compute the fair share of a build - the number of the online
+	 * {@link Node}s of its {@link Label} in proportion to its weight among
+	 * the running builds still needing {@link Node}s and the queued builds of
+	 * the same {@link Label}. A build is always entitled to 2 {@link Node}s.
+	 * 
+	 * @param job
+	 *            the {@link DTJob} of the build
+	 * @param build
+	 *            the build, or null if it's queued
+	 * @param itemId
+	 *            the id of the queue item of the build, if it's queued
+	 * @return the number of {@link Node}s
+	 */
+	public static int getFairShare(DTJob job, AbstractBuild<?, ?> build,
+			long itemId) {
+		Label label = job.getAssignedLabel();
+		double weight = getWeight(job);
+		double totalWeight = weight;
+		for (TestDispatcher dispatcher : NodeWatcher.getDispatchers()) {
+			DTJob other = dispatcher.getJob();
+			if (dispatcher.getBuild() != build && dispatcher.wantsNodes()
+					&& label.equals(other.getAssignedLabel())) {
+				totalWeight += getWeight(other);
+			}
+		}
+		for (Queue.Item item : Jenkins.getInstance().getQueue().getItems()) {
+			if (item.getId() != itemId && item.task instanceof DTJob
+					&& label.equals(((DTJob) item.task).getAssignedLabel())) {
+				totalWeight += getWeight((DTJob) item.task);
+			}
+		}
+
+		int pool = 0;
+		for (Node node : label.getNodes()) {
+			Computer computer = node.toComputer();
+			if (computer != null && computer.isOnline()) {
+				pool++;
+			}
+		}
+		return getFairShare(pool, weight, totalWeight);
+	}
+
+	/**
+	 * Used to compute the fair share of a build - its weighted part of a pool
+	 * of {@link Node}s, but at least 2 {@link Node}s.
+	 * 
+	 * @param pool
+	 *            the number of online {@link Node}s of the {@link Label}
+	 * @param weight
+	 *            the weight of the build
+	 * @param totalWeight
+	 *            the sum of the weights of the competing builds, including
+	 *            this one
+	 * @return the number of {@link Node}s
+	 */
+	static int getFairShare(int pool, double weight, double totalWeight) {
+		return Math.max(2, (int) Math.floor(pool * weight / totalWeight));
+	}
+
+	/**
+	 * Used to select the {@link Node}s a build takes from the free ones - the
+	 * best ranked by the {@link NodeScorer}.
+	 * 
+	 * @param job
+	 *            the {@link DTJob} of the build
+	 * @param freeNodes
+	 *            the free {@link Node}s
+	 * @param count
+	 *            the maximum number of {@link Node}s
+	 * @return the selected {@link Node}s, from the best to the worst
+	 */
+	public static Set<Node> select(DTJob job, Set<Node> freeNodes, int count) {
+		Set<Node> selected = new LinkedHashSet<Node>();
+		for (Node node : NodeScorer.rank(job, freeNodes)) {
+			if (selected.size() >= count) {
+				break;
+			}
+			selected.add(node);
+		}
+		return selected;
+	}
+
+	/**
+	 * Used to hand a {@link Node} released by a build over to the running
+	 * build of the same {@link Label}, which needs {@link Node}s and is
+	 * furthest below its fair share. If there is none, the queued builds may
+	 * take the {@link Node}.
+	 * 
+	 * @param node
+	 *            the released {@link Node}
+	 * @param from
+	 *            the build releasing the {@link Node}
+	 * @return the build receiving the {@link Node}, or null if none
+	 */
+	public static AbstractBuild<?, ?> handOver(Node node,
+			AbstractBuild<?, ?> from) {
+		TestDispatcher receiver = null;
+		double receiverLoad = 0;
+		for (TestDispatcher dispatcher : NodeWatcher.getDispatchers()) {
+			DTJob job = dispatcher.getJob();
+			Label label = job.getAssignedLabel();
+			if (dispatcher.getBuild() == from || !dispatcher.wantsNodes()
+					|| label == null || !label.contains(node)) {
+				continue;
+			}
+			int numOfNodes = dispatcher.getNumOfNodes();
+			if (numOfNodes >= getFairShare(job, dispatcher.getBuild(), -1)) {
+				continue;
+			}
+			double load = numOfNodes / getWeight(job);
+			if (receiver == null || load < receiverLoad) {
+				receiver = dispatcher;
+				receiverLoad = load;
+			}
+		}
+		if (receiver != null
+				&& !NodeReservations.reserve(receiver.getBuild(),
+						Collections.singleton(node)).isEmpty()) {
+			receiver.nodeAvailable();
+			return receiver.getBuild();
+		}
+		// Let the queued builds take the node
+		Jenkins.getInstance().getQueue().scheduleMaintenance();
+		return null;
+	}
+
+	/**
+	 * Used to record that a queued build waits for {@link Node}s, so that
+	 * they may be reclaimed from the builds with a lower priority. The
+	 * running builds, which may give up {@link Node}s, are woken up when the
+	 * demand is new or its grace period has just passed.
+	 * 
+	 * @param itemId
+	 *            the id of the queue item of the build
+	 * @param job
+	 *            the {@link DTJob} of the build
+	 * @param missing
+	 *            the number of missing {@link Node}s
+	 * @param waited
+	 *            the time, in milliseconds, the build has waited so far
+	 */
+	public static void demand(long itemId, DTJob job, int missing,
+			long waited) {
+		boolean wakeUp;
+		synchronized (NodeBroker.class) {
+			Demand demand = DEMANDS.get(itemId);
+			if (demand == null) {
+				demand = new Demand(itemId, job);
+				DEMANDS.put(itemId, demand);
+			}
+			demand.missing = missing - demand.killing;
+			boolean escalated = waited >= PREEMPTION_GRACE * 1000;
+			wakeUp = demand.missing > 0
+					&& (demand.isNew || (escalated && !demand.escalated));
+			demand.isNew = false;
+			demand.escalated = escalated;
+		}
+		if (wakeUp) {
+			for (TestDispatcher dispatcher : NodeWatcher.getDispatchers()) {
+				if (getPriority(dispatcher.getJob()) < getPriority(job)) {
+					dispatcher.nodeAvailable();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Used to forget the demand of a queued build, which was admitted or
+	 * left the queue.
+	 * 
+	 * @param itemId
+	 *            the id of the queue item of the build
+	 */
+	public static synchronized void forget(long itemId) {
+		DEMANDS.remove(itemId);
+	}
+
+	/**
+	 * Used by a running build to give up a {@link Node} at the end of its
+	 * test packet, or after its test packet was killed, to a queued build
+	 * with a higher priority. The {@link Node} is reserved for the queued
+	 * build right away.
+	 * 
+	 * @param dispatcher
+	 *            the {@link TestDispatcher} of the running build
+	 * @param node
+	 *            the {@link Node}
+	 * @param killed
+	 *            true if the test packet on the {@link Node} was killed
+	 *            after {@link #preemptRunning(TestDispatcher, Node)}
+	 * @return true if the {@link Node} was reclaimed
+	 */
+	public static synchronized boolean reclaim(TestDispatcher dispatcher,
+			Node node, boolean killed) {
+		Demand demand = findDemand(dispatcher, node, killed);
+		if (demand == null) {
+			return false;
+		}
+		if (killed) {
+			demand.killing--;
+		}
+		if (!killed && dispatcher.getNumOfNodes() <= 1) {
+			return false;
+		}
+		demand.missing--;
+		NodeReservations.transfer(node, dispatcher.getBuild(),
+				demand.itemId, demand.job);
+		Jenkins.getInstance().getQueue().scheduleMaintenance();
+		return true;
+	}
+
+	/**
+	 * Used by a running build to withdraw the promise of a {@link Node},
+	 * which was lost while its test packet was being killed.
+	 * 
+	 * @param dispatcher
+	 *            the {@link TestDispatcher} of the running build
+	 * @param node
+	 *            the {@link Node}
+	 */
+	public static synchronized void withdraw(TestDispatcher dispatcher,
+			Node node) {
+		Demand demand = findDemand(dispatcher, node, true);
+		if (demand != null) {
+			demand.killing--;
+			demand.missing++;
+		}
+	}
+
+	/**
+	 * Used by a running build to check if the test packet in progress on a
+	 * {@link Node} should be killed, because a queued build with a higher
+	 * priority has waited for {@link Node}s longer than the grace period. If
+	 * so, the {@link Node} is promised to the queued build, to be reclaimed
+	 * once the test packet is killed.
+	 * 
+	 * @param dispatcher
+	 *            the {@link TestDispatcher} of the running build
+	 * @param node
+	 *            the {@link Node}
+	 * @return true if the test packet should be killed
+	 */
+	public static synchronized boolean preemptRunning(
+			TestDispatcher dispatcher, Node node) {
+		Demand demand = findDemand(dispatcher, node, false);
+		if (demand == null || !demand.escalated) {
+			return false;
+		}
+		demand.missing--;
+		demand.killing++;
+		return true;
+	}
+
+	/**
+	 * Used to find the demand of the queued build with the highest priority,
+	 * which may reclaim a {@link Node} of a running build.
+	 * 
+	 * @param dispatcher
+	 *            the {@link TestDispatcher} of the running build
+	 * @param node
+	 *            the {@link Node}
+	 * @param killing
+	 *            true to find a demand the {@link Node} was promised to
+	 * @return the demand, or null if there is none
+	 */
+	private static Demand findDemand(TestDispatcher dispatcher, Node node,
+			boolean killing) {
+		int priority = getPriority(dispatcher.getJob());
+		Demand found = null;
+		for (Demand demand : DEMANDS.values()) {
+			Label label = demand.job.getAssignedLabel();
+			if (getPriority(demand.job) <= priority || label == null
+					|| !label.contains(node)
+					|| (killing ? demand.killing <= 0 : demand.missing <= 0)) {
+				continue;
+			}
+			if (found == null
+					|| getPriority(demand.job) > getPriority(found.job)) {
+				found = demand;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Used to get the priority of a {@link DTJob}.
+	 * 
+	 * @param job
+	 *            the {@link DTJob}
+	 * @return the priority
+	 */
+	private static int getPriority(DTJob job) {
+		return job.getPriorityValue();
+	}
+
+	/**
+	 * Used to get the share weight of a {@link DTJob}.
+	 * 
+	 * @param job
+	 *            the {@link DTJob}
+	 * @return the weight
+	 */
+	private static double getWeight(DTJob job) {
+		return Math.max(job.getShareWeightValue(), 0.01);
+	}
+
+	/**
+	 * Represents a queued build waiting for {@link Node}s.
+	 */
+	private static class Demand {
+
+		private final long itemId;
+		private final DTJob job;
+		private int missing;
+		private int killing;
+		private boolean isNew = true;
+		private boolean escalated;
+
+		private Demand(long itemId, DTJob job) {
+			this.itemId = itemId;
+			this.job = job;
+		}
+	}
+}
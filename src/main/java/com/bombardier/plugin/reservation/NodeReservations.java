@@ -0,0 +1,337 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.reservation;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Node;
+import hudson.model.Queue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import jenkins.model.Jenkins;
+
+import com.bombardier.plugin.execution.PacketTask;
+
+/**
+ * Keeps, in memory, the Slave {@link Node}s reserved by the running builds.
+ * A reserved {@link Node} doesn't take any other task from the build queue
+ * (see {@link ReservationDispatcher}), so the testing processes of the build
+ * don't compete with other jobs for its executors. The {@link Node}s may
+ * also be reserved for a queued build when it's admitted, and are then
+ * claimed by the build when it starts. The reservations aren't persisted -
+ * after a restart no build holds any {@link Node}.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class NodeReservations {
+
+	private static final Map<String, Reservation> RESERVATIONS = new HashMap<String, Reservation>();
+	private static final Set<Long> ADMITTED = new HashSet<Long>();
+
+	/**
+	 * Used to reserve {@link Node}s for a build. The {@link Node}s held by
+	 * another build are skipped; checking and reserving is atomic.
+	 * 
+	 * @param build
+	 *            the build
+	 * @param nodes
+	 *            the {@link Node}s to be reserved
+	 * @return the {@link Node}s reserved for the build
+	 */
+	public static synchronized Set<Node> reserve(AbstractBuild<?, ?> build,
+			Set<Node> nodes) {
+		Set<Node> reserved = new LinkedHashSet<Node>();
+		for (Node node : nodes) {
+			Reservation reservation = RESERVATIONS.get(node.getNodeName());
+			if (reservation == null) {
+				RESERVATIONS.put(node.getNodeName(), new Reservation(
+						build.getProject(), -1, build));
+				reserved.add(node);
+			} else if (reservation.build == build) {
+				reserved.add(node);
+			}
+		}
+		return reserved;
+	}
+
+	/**
+	 * Used to get the {@link Node}s reserved for a build.
+	 * 
+	 * @param build
+	 *            the build
+	 * @return the {@link Node}s
+	 */
+	public static synchronized Set<Node> getReserved(AbstractBuild<?, ?> build) {
+		Set<Node> reserved = new LinkedHashSet<Node>();
+		for (Entry<String, Reservation> entry : RESERVATIONS.entrySet()) {
+			Node node = Jenkins.getInstance().getNode(entry.getKey());
+			if (entry.getValue().build == build && node != null) {
+				reserved.add(node);
+			}
+		}
+		return reserved;
+	}
+
+	/**
+	 * Used to reserve {@link Node}s for a queued build being admitted. The
+	 * {@link Node}s held by another build are skipped; checking and reserving
+	 * is atomic.
+	 * 
+	 * @param itemId
+	 *            the id of the queue item of the build
+	 * @param project
+	 *            the project of the build
+	 * @param nodes
+	 *            the {@link Node}s to be reserved
+	 * @return the number of the {@link Node}s reserved for the queued build
+	 */
+	public static synchronized int admit(long itemId,
+			AbstractProject<?, ?> project, Set<Node> nodes) {
+		ADMITTED.add(itemId);
+		int admitted = 0;
+		for (Node node : nodes) {
+			if (!RESERVATIONS.containsKey(node.getNodeName())) {
+				RESERVATIONS.put(node.getNodeName(), new Reservation(project,
+						itemId, null));
+				admitted++;
+			}
+		}
+		return admitted;
+	}
+
+	/**
+	 * Used to check if a queued build was already admitted.
+	 * 
+	 * @param itemId
+	 *            the id of the queue item of the build
+	 * @return true if the queued build was admitted
+	 */
+	public static synchronized boolean isAdmitted(long itemId) {
+		return ADMITTED.contains(itemId);
+	}
+
+	/**
+	 * Used to count the {@link Node}s reserved for a queued build, e.g. the
+	 * ones reclaimed for it before its admission.
+	 * 
+	 * @param itemId
+	 *            the id of the queue item of the build
+	 * @return the number of {@link Node}s
+	 */
+	public static synchronized int countHeld(long itemId) {
+		int held = 0;
+		for (Reservation reservation : RESERVATIONS.values()) {
+			if (reservation.build == null && reservation.itemId == itemId) {
+				held++;
+			}
+		}
+		return held;
+	}
+
+	/**
+	 * Used to move the reservation of a {@link Node} from a running build to
+	 * a queued one, without releasing the {@link Node} in between.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @param from
+	 *            the running build
+	 * @param itemId
+	 *            the id of the queue item of the queued build
+	 * @param project
+	 *            the project of the queued build
+	 */
+	public static synchronized void transfer(Node node,
+			AbstractBuild<?, ?> from, long itemId,
+			AbstractProject<?, ?> project) {
+		Reservation reservation = RESERVATIONS.get(node.getNodeName());
+		if (reservation == null || reservation.build == from) {
+			RESERVATIONS.put(node.getNodeName(), new Reservation(project,
+					itemId, null));
+		}
+	}
+
+	/**
+	 * Used to hand the {@link Node}s reserved at the admission of a queued
+	 * build over to the started build.
+	 * 
+	 * @param build
+	 *            the started build
+	 * @param itemId
+	 *            the id of the queue item the build was started from
+	 */
+	public static synchronized void claim(AbstractBuild<?, ?> build,
+			long itemId) {
+		ADMITTED.remove(itemId);
+		for (Reservation reservation : RESERVATIONS.values()) {
+			if (reservation.build == null && reservation.itemId == itemId) {
+				reservation.build = build;
+			}
+		}
+	}
+
+	/**
+	 * Used to release the {@link Node}s reserved for a queued build, which
+	 * left the queue without being started.
+	 * 
+	 * @param itemId
+	 *            the id of the queue item of the build
+	 */
+	public static synchronized void cancel(long itemId) {
+		ADMITTED.remove(itemId);
+		Iterator<Reservation> iterator = RESERVATIONS.values().iterator();
+		while (iterator.hasNext()) {
+			Reservation reservation = iterator.next();
+			if (reservation.build == null && reservation.itemId == itemId) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Used to release all {@link Node}s reserved for a build.
+	 * 
+	 * @param build
+	 *            the build
+	 */
+	public static synchronized void release(AbstractBuild<?, ?> build) {
+		Iterator<Reservation> iterator = RESERVATIONS.values().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().build == build) {
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Used to release a single {@link Node} reserved for a build.
+	 * 
+	 * @param build
+	 *            the build
+	 * @param node
+	 *            the {@link Node}
+	 */
+	public static synchronized void release(AbstractBuild<?, ?> build,
+			Node node) {
+		Reservation reservation = RESERVATIONS.get(node.getNodeName());
+		if (reservation != null && reservation.build == build) {
+			RESERVATIONS.remove(node.getNodeName());
+		}
+	}
+
+	/**
+	 * Used to get the {@link Reservation} of a {@link Node}.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @return the {@link Reservation} or null if the {@link Node} isn't
+	 *         reserved
+	 */
+	public static synchronized Reservation getReservation(Node node) {
+		return RESERVATIONS.get(node.getNodeName());
+	}
+
+	/**
+	 * Used to check if a {@link Node} is reserved for another build.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @param build
+	 *            the build
+	 * @return true if another build, queued or running, holds the
+	 *         {@link Node}
+	 */
+	public static synchronized boolean isReservedByOther(Node node,
+			AbstractBuild<?, ?> build) {
+		Reservation reservation = RESERVATIONS.get(node.getNodeName());
+		return reservation != null && reservation.build != build;
+	}
+
+	/**
+	 * Represents the reservation of a {@link Node} for a build, which may
+	 * still be queued.
+	 * 
+	 * @since 1.1
+	 */
+	public static class Reservation {
+
+		private final AbstractProject<?, ?> project;
+		private final long itemId;
+		private AbstractBuild<?, ?> build;
+
+		private Reservation(AbstractProject<?, ?> project, long itemId,
+				AbstractBuild<?, ?> build) {
+			this.project = project;
+			this.itemId = itemId;
+			this.build = build;
+		}
+
+		public AbstractProject<?, ?> getProject() {
+			return project;
+		}
+
+		/**
+		 * Used to check if a task of the build queue belongs to the build
+		 * holding the {@link Node} - it's the queued build itself, or one of
+		 * the test packets of the running build. The concurrent builds of the
+		 * same project don't hold the {@link Node}.
+		 * 
+		 * @param item
+		 *            the item of the build queue
+		 * @return true if the item belongs to the holder
+		 */
+		public boolean isHeldBy(Queue.Item item) {
+			synchronized (NodeReservations.class) {
+				if (itemId >= 0 && item.getId() == itemId) {
+					return true;
+				}
+				if (build == null || !(item.task instanceof PacketTask)) {
+					return false;
+				}
+				return ((PacketTask) item.task).getDispatcher().getBuild() == build;
+			}
+		}
+
+		/**
+		 * Used to get the name of the build holding the {@link Node}.
+		 * 
+		 * @return the name of the build, or of its project if it's queued
+		 */
+		public String getHolderName() {
+			synchronized (NodeReservations.class) {
+				return (build != null) ? build.getFullDisplayName() : project
+						.getFullDisplayName();
+			}
+		}
+	}
+}
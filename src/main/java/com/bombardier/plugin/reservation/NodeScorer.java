@@ -0,0 +1,328 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.reservation;
+
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jenkins.MasterToSlaveCallable;
+
+import com.bombardier.plugin.DTJob;
+import com.bombardier.plugin.history.History;
+import com.bombardier.plugin.history.Test;
+import com.bombardier.plugin.utils.HistoryAndStatsUtils;
+
+/**
+ * Used to rank the Slave {@link Node}s, so that the slow, overloaded or
+ * nearly full ones receive less work. The score of a {@link Node} is its
+ * speed relative to the other {@link Node}s, measured from the testing
+ * {@link History}, divided by its load average per processor. A
+ * {@link Node} with less free space in the test environment than
+ * {@link #MIN_FREE_DISK} is ranked last.
+ * <p>
+ * The measurements are refreshed in the background, at most once per
+ * {@link #PROBE_INTERVAL}, so the ranking never waits for the
+ * {@link Node}s. A {@link Node} not measured yet has a neutral score.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class NodeScorer {
+
+	/**
+	 * The time, in seconds, the measurements are reused for. Can be
+	 * overridden with the system property
+	 * "com.bombardier.plugin.reservation.NodeScorer.probeInterval".
+	 */
+	public static final long PROBE_INTERVAL = Long.getLong(
+			NodeScorer.class.getName() + ".probeInterval", 60);
+
+	/**
+	 * The free space, in megabytes, a {@link Node} needs in its test
+	 * environment not to be ranked last. Can be overridden with the system
+	 * property "com.bombardier.plugin.reservation.NodeScorer.minFreeDisk".
+	 */
+	public static final long MIN_FREE_DISK = Long.getLong(
+			NodeScorer.class.getName() + ".minFreeDisk", 1024);
+
+	private static final double MIN_SPEED_FACTOR = 0.2;
+	private static final double MAX_SPEED_FACTOR = 5;
+
+	private static final Map<String, Probe> PROBES = new ConcurrentHashMap<String, Probe>();
+	private static final Set<String> PROBING = Collections
+			.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private static final AtomicBoolean MEASURING = new AtomicBoolean();
+	private static volatile Map<String, Double> speedFactors = Collections
+			.emptyMap();
+	private static volatile long measuredOn;
+
+	/**
+	 * Used to order {@link Node}s from the best to the worst score for a
+	 * {@link DTJob}.
+	 * 
+	 * @param job
+	 *            the {@link DTJob}
+	 * @param nodes
+	 *            the {@link Node}s
+	 * @return the ranked {@link Node}s
+	 */
+	public static List<Node> rank(DTJob job, Collection<Node> nodes) {
+		final Map<Node, Double> scores = new HashMap<Node, Double>();
+		final Map<Node, Boolean> lowOnDisk = new HashMap<Node, Boolean>();
+		for (Node node : nodes) {
+			Probe probe = getProbe(job, node);
+			scores.put(node, getScore(node, probe));
+			lowOnDisk.put(node, probe != null && probe.isLowOnDisk());
+		}
+		List<Node> ranked = new ArrayList<Node>(nodes);
+		Collections.sort(ranked, new Comparator<Node>() {
+			@Override
+			public int compare(Node node, Node other) {
+				int disk = lowOnDisk.get(node).compareTo(lowOnDisk.get(other));
+				if (disk != 0) {
+					return disk;
+				}
+				return Double.compare(scores.get(other), scores.get(node));
+			}
+		});
+		return ranked;
+	}
+
+	/**
+	 * Used to get the speed factor of a {@link Node} - the average ratio of
+	 * the execution times of the test cases on the {@link Node} to their
+	 * average execution times on all {@link Node}s. A factor above 1 means a
+	 * slower {@link Node} than the average.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @return the speed factor, 1 if it's not known
+	 */
+	public static double getSpeedFactor(Node node) {
+		if (System.currentTimeMillis() - measuredOn > PROBE_INTERVAL * 1000
+				&& MEASURING.compareAndSet(false, true)) {
+			Computer.threadPoolForRemoting.submit(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						speedFactors = measureSpeedFactors(HistoryAndStatsUtils
+								.getTestingHistory());
+					} catch (Exception e) {
+						// keep the previous speed factors
+					} finally {
+						measuredOn = System.currentTimeMillis();
+						MEASURING.set(false);
+					}
+				}
+			});
+		}
+		Double factor = speedFactors.get(node.getDisplayName());
+		return (factor != null) ? factor : 1;
+	}
+
+	/**
+	 * Used to compute the score of a {@link Node}.
+	 * 
+	 * @param node
+	 *            the {@link Node}
+	 * @param probe
+	 *            the last {@link Probe} of the {@link Node}, or null
+	 * @return the score, the higher the better
+	 */
+	private static double getScore(Node node, Probe probe) {
+		double score = 1 / getSpeedFactor(node);
+		if (probe != null) {
+			if (probe.loadPerProcessor > 0) {
+				score /= 1 + probe.loadPerProcessor;
+			}
+		}
+		return score;
+	}
+
+	/**
+	 * Used to get the last {@link Probe} of a {@link Node} for a
+	 * {@link DTJob}, and to take a new one in the background if it's
+	 * outdated.
+	 * 
+	 * @param job
+	 *            the {@link DTJob}
+	 * @param node
+	 *            the {@link Node}
+	 * @return the last {@link Probe}, or null if none was taken yet
+	 */
+	private static Probe getProbe(DTJob job, final Node node) {
+		final String key = node.getNodeName() + "/" + job.getSlaveTestEnv();
+		Probe probe = PROBES.get(key);
+		boolean outdated = probe == null
+				|| System.currentTimeMillis() - probe.takenOn > PROBE_INTERVAL * 1000;
+		if (outdated && PROBING.add(key)) {
+			final TakeProbe takeProbe = new TakeProbe(job.getSlaveTestEnv());
+			Computer.threadPoolForRemoting.submit(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						VirtualChannel channel = node.getChannel();
+						if (channel != null) {
+							Probe probe = channel.call(takeProbe);
+							probe.takenOn = System.currentTimeMillis();
+							PROBES.put(key, probe);
+						}
+					} catch (Exception e) {
+						// the node is not reachable, keep its last probe
+					} finally {
+						PROBING.remove(key);
+					}
+				}
+			});
+		}
+		return probe;
+	}
+
+	/**
+	 * Used to compute the speed factors of the {@link Node}s from the
+	 * testing {@link History}.
+	 * 
+	 * @param history
+	 *            the testing {@link History}
+	 * @return the speed factors by {@link Node} name
+	 */
+	private static Map<String, Double> measureSpeedFactors(History history) {
+		Map<String, double[]> byTest = new HashMap<String, double[]>();
+		for (Test test : history.getTests()) {
+			if (test.getName() != null && test.getSlaveName() != null
+					&& test.getExecutionTime() > 0) {
+				add(byTest, test.getName(), test.getExecutionTime());
+			}
+		}
+		Map<String, double[]> bySlave = new HashMap<String, double[]>();
+		for (Test test : history.getTests()) {
+			double[] times = byTest.get(test.getName());
+			if (times != null && test.getSlaveName() != null
+					&& test.getExecutionTime() > 0) {
+				add(bySlave, test.getSlaveName(), test.getExecutionTime()
+						/ (times[0] / times[1]));
+			}
+		}
+		Map<String, Double> factors = new HashMap<String, Double>();
+		for (Map.Entry<String, double[]> slave : bySlave.entrySet()) {
+			double factor = slave.getValue()[0] / slave.getValue()[1];
+			factors.put(slave.getKey(), Math.max(MIN_SPEED_FACTOR,
+					Math.min(MAX_SPEED_FACTOR, factor)));
+		}
+		return factors;
+	}
+
+	/**
+	 * Used to add a value to the sum and the count kept for a key.
+	 * 
+	 * @param sums
+	 *            the sums and counts by key
+	 * @param key
+	 *            the key
+	 * @param value
+	 *            the value
+	 */
+	private static void add(Map<String, double[]> sums, String key,
+			double value) {
+		double[] sum = sums.get(key);
+		if (sum == null) {
+			sum = new double[2];
+			sums.put(key, sum);
+		}
+		sum[0] += value;
+		sum[1]++;
+	}
+
+	/**
+	 * Used to hold the measurements taken on a {@link Node}.
+	 */
+	private static class Probe implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long freeDisk;
+		private final double loadPerProcessor;
+		private transient long takenOn;
+
+		private Probe(long freeDisk, double loadPerProcessor) {
+			this.freeDisk = freeDisk;
+			this.loadPerProcessor = loadPerProcessor;
+		}
+
+		private boolean isLowOnDisk() {
+			return freeDisk >= 0 && freeDisk < MIN_FREE_DISK * 1024 * 1024;
+		}
+	}
+
+	/**
+	 * Used to measure, on the {@link Node}, the free space in the test
+	 * environment and the load average per processor.
+	 */
+	private static class TakeProbe extends MasterToSlaveCallable<Probe, IOException> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String testEnv;
+
+		private TakeProbe(String testEnv) {
+			this.testEnv = testEnv;
+		}
+
+		@Override
+		public Probe call() throws IOException {
+			File folder = new File(System.getProperty("user.home"), testEnv);
+
+			// The test environment may not be created yet
+			File existing = folder;
+			while (existing != null && !existing.exists()) {
+				existing = existing.getParentFile();
+			}
+			long freeDisk = (existing != null) ? existing.getUsableSpace() : -1;
+
+			OperatingSystemMXBean os = ManagementFactory
+					.getOperatingSystemMXBean();
+			double load = os.getSystemLoadAverage();
+			return new Probe(freeDisk,
+					(load >= 0) ? load / os.getAvailableProcessors() : -1);
+		}
+	}
+}
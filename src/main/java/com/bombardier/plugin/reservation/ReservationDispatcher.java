@@ -0,0 +1,159 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.reservation;
+
+import hudson.Extension;
+import hudson.model.Node;
+import hudson.model.Queue;
+import hudson.model.Queue.BuildableItem;
+import hudson.model.queue.CauseOfBlockage;
+import hudson.model.queue.QueueListener;
+import hudson.model.queue.QueueTaskDispatcher;
+
+import java.util.Set;
+
+import com.bombardier.plugin.DTJob;
+import com.bombardier.plugin.Messages;
+import com.bombardier.plugin.reservation.NodeReservations.Reservation;
+import com.bombardier.plugin.utils.NodeUtils;
+
+/**
+ * Used to keep the tasks of the build queue off the {@link Node}s reserved
+ * in the {@link NodeReservations}. Only the tasks of the build holding a
+ * {@link Node} may be executed on it, not even the ones of the concurrent
+ * builds of its project.
+ * <p>
+ * It also admits the queued builds of the {@link DTJob}s: a build waits in
+ * the queue until the minimum number of free {@link Node}s configured on
+ * its {@link DTJob} is reached, or its admission timeout passes. The free
+ * {@link Node}s, up to its fair share (see {@link NodeBroker}), are then
+ * reserved for it at once, so that they aren't taken by other jobs before
+ * the build starts. While it waits, the {@link Node}s may be reclaimed for
+ * it from the builds of the {@link DTJob}s with a lower priority.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+@Extension
+public class ReservationDispatcher extends QueueTaskDispatcher {
+
+	@Override
+	public CauseOfBlockage canTake(Node node, BuildableItem item) {
+		Reservation reservation = NodeReservations.getReservation(node);
+		if (reservation == null || reservation.isHeldBy(item)) {
+			return null;
+		}
+		return new NodeReserved(node, reservation);
+	}
+
+	@Override
+	public CauseOfBlockage canRun(Queue.Item item) {
+		if (!(item.task instanceof DTJob)
+				|| NodeReservations.isAdmitted(item.getId())) {
+			return null;
+		}
+		DTJob job = (DTJob) item.task;
+		if (job.getAssignedLabel() == null) {
+			// The build fails on the missing label
+			return null;
+		}
+		Set<Node> freeNodes = NodeUtils.getFreeNodes(job);
+		// including the nodes reclaimed for the build
+		int held = NodeReservations.countHeld(item.getId());
+		int available = freeNodes.size() + held;
+		int minNodes = job.getMinNodesValue();
+		long waited = System.currentTimeMillis() - item.getInQueueSince();
+		if (available < minNodes
+				&& waited < job.getAdmissionTimeoutValue() * 1000) {
+			NodeBroker.demand(item.getId(), job, minNodes - available, waited);
+			return new NotEnoughNodes(available, minNodes);
+		}
+		NodeBroker.forget(item.getId());
+		int share = Math.max(minNodes,
+				NodeBroker.getFairShare(job, null, item.getId()));
+		NodeReservations.admit(item.getId(), job,
+				NodeBroker.select(job, freeNodes, share - held));
+		return null;
+	}
+
+	/**
+	 * The {@link CauseOfBlockage} of a task waiting for a reserved
+	 * {@link Node}.
+	 */
+	public static class NodeReserved extends CauseOfBlockage {
+
+		private final String nodeName;
+		private final String holderName;
+
+		public NodeReserved(Node node, Reservation reservation) {
+			this.nodeName = node.getDisplayName();
+			this.holderName = reservation.getHolderName();
+		}
+
+		@Override
+		public String getShortDescription() {
+			return Messages.NodeReserved_description(nodeName, holderName);
+		}
+	}
+
+	/**
+	 * The {@link CauseOfBlockage} of a {@link DTJob} build waiting for enough
+	 * free {@link Node}s.
+	 */
+	public static class NotEnoughNodes extends CauseOfBlockage {
+
+		private final int numOfFree;
+		private final int minNodes;
+
+		public NotEnoughNodes(int numOfFree, int minNodes) {
+			this.numOfFree = numOfFree;
+			this.minNodes = minNodes;
+		}
+
+		@Override
+		public String getShortDescription() {
+			return Messages.NotEnoughNodes_description(minNodes, numOfFree);
+		}
+	}
+
+	/**
+	 * Used to release the {@link Node}s reserved for an admitted build, which
+	 * was removed from the queue without being started.
+	 * 
+	 * @since 1.1
+	 */
+	@Extension
+	public static class AdmissionListener extends QueueListener {
+
+		@Override
+		public void onLeft(Queue.LeftItem item) {
+			NodeBroker.forget(item.getId());
+			if (item.isCancelled()) {
+				NodeReservations.cancel(item.getId());
+			}
+		}
+	}
+}
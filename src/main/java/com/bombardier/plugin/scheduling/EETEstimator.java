@@ -0,0 +1,265 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.scheduling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.bombardier.plugin.history.History;
+import com.bombardier.plugin.history.Test;
+
+/**
+ * Used to calculate the Estimated execution time (EET) of a {@link Test} case
+ * based on the testing {@link History}. The history is indexed once, when the
+ * estimator is created, and reused for every estimation.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class EETEstimator {
+
+	/**
+	 * The version of the estimation model. It has to be incremented whenever
+	 * the calculation changes, so that the cached schedules computed with a
+	 * previous model are discarded.
+	 */
+	public static final int VERSION = 1;
+
+	private final long[] lineKeys;
+	private final double[] avgPerLineByKey;
+	private final long[] sizeKeys;
+	private final double[] avgPerByteByKey;
+
+	/**
+	 * Used to initialize an instance of the {@link EETEstimator}. The
+	 * numbers of lines and sizes in the history are split to five parts each
+	 * and the average execution time per line, or per byte, of each part is
+	 * computed here, once.
+	 * 
+	 * @param history
+	 *            the testing {@link History}
+	 */
+	public EETEstimator(History history) {
+		TreeMap<Integer, Double> sortedByLines = new TreeMap<Integer, Double>();
+		TreeMap<Long, Double> sortedBySize = new TreeMap<Long, Double>();
+		for (Test t : history.getTests()) {
+			sortedByLines.put(t.getLines(), t.getExecutionTime());
+			sortedBySize.put(t.getBytes(), t.getExecutionTime());
+		}
+
+		List<Integer> lineList = new ArrayList<Integer>(sortedByLines.keySet());
+		this.lineKeys = new long[lineList.size()];
+		for (int i = 0; i < lineKeys.length; i++) {
+			lineKeys[i] = lineList.get(i);
+		}
+		this.avgPerLineByKey = new double[lineKeys.length];
+		for (List<Integer> part : splitToFiveLists(lineList)) {
+			double avg = getAveragePerLine(sortedByLines.subMap(part.get(0),
+					part.get(part.size() - 1)));
+			for (Integer key : part) {
+				avgPerLineByKey[Arrays.binarySearch(lineKeys, key)] = avg;
+			}
+		}
+
+		List<Long> sizeList = new ArrayList<Long>(sortedBySize.keySet());
+		this.sizeKeys = new long[sizeList.size()];
+		for (int i = 0; i < sizeKeys.length; i++) {
+			sizeKeys[i] = sizeList.get(i);
+		}
+		this.avgPerByteByKey = new double[sizeKeys.length];
+		for (List<Long> part : splitToFiveLists(sizeList)) {
+			double avg = getAveragePerByte(sortedBySize.subMap(part.get(0),
+					part.get(part.size() - 1)));
+			for (Long key : part) {
+				avgPerByteByKey[Arrays.binarySearch(sizeKeys, key)] = avg;
+			}
+		}
+	}
+
+	/**
+	 * Used to get the Estimated execution time (EET) of a {@link Test} case.
+	 * 
+	 * @param test
+	 *            the {@link Test} case to be evaluated
+	 * @return the EET of the {@link Test} case
+	 * @since 1.0
+	 */
+	public double estimate(Test test) {
+		return estimate(test.getLines(), test.getBytes());
+	}
+
+	/**
+	 * Used to get the Estimated execution time (EET) of a test case described
+	 * only by its number of lines and size. The averages of the parts holding
+	 * the closest number of lines and the closest size are used.
+	 * 
+	 * @param lines
+	 *            the number of non blank lines
+	 * @param bytes
+	 *            the size in bytes
+	 * @return the EET of the test case
+	 * @throws IllegalStateException
+	 *             if the testing history is empty
+	 * @since 1.1
+	 */
+	public double estimate(int lines, long bytes) {
+		if (sizeKeys.length == 0) {
+			throw new IllegalStateException("The testing history is empty");
+		}
+		double avgPerByte = avgPerByteByKey[getClosestIndex(sizeKeys, bytes)];
+		double avgPerLine = avgPerLineByKey[getClosestIndex(lineKeys, lines)];
+
+		return getEstimatedExecutionTime(lines, bytes, avgPerLine, avgPerByte);
+	}
+
+	/**
+	 * Used to calculate the Estimated execution time (EET) of a {@link Test}
+	 * case.
+	 * 
+	 * @param lines
+	 *            the number of lines of the test case
+	 * @param bytes
+	 *            the size of the test case
+	 * @param avgPerLine
+	 *            the average execution time per line
+	 * @param avgPerByte
+	 *            the average execution time per byte
+	 * @return the EET of the {@link Test} case
+	 */
+	private double getEstimatedExecutionTime(int lines, long bytes,
+			double avgPerLine, double avgPerByte) {
+		return Math
+				.round((((avgPerLine * lines) + (avgPerByte * bytes)) / 2) * 100.0) / 100.0;
+	}
+
+	/**
+	 * Used to calculate average execution time per byte
+	 * 
+	 * @param map
+	 *            the map containing data about execution time
+	 * @return
+	 * @since 1.0
+	 */
+	private double getAveragePerByte(SortedMap<Long, Double> map) {
+		double avg = 0;
+		for (Entry<Long, Double> entry : map.entrySet()) {
+			avg = Math
+					.round(((avg + (entry.getValue() / entry.getKey())) / 2) * 100000.0) / 100000.0;
+		}
+		return avg;
+	}
+
+	/**
+	 * Used to calculate the average execution time per line of code.
+	 * 
+	 * @param map
+	 *            the map containing data about execution time.
+	 * @return
+	 * @since 1.0
+	 */
+	private double getAveragePerLine(SortedMap<Integer, Double> map) {
+		double avg = 0;
+		for (Entry<Integer, Double> entry : map.entrySet()) {
+			avg = Math
+					.round(((avg + (entry.getValue() / entry.getKey())) / 2) * 100.0) / 100.0;
+		}
+		return avg;
+	}
+
+	/**
+	 * Used to find the closest number to a specified one in a sorted array.
+	 * Of two equally close numbers, the smaller one is taken.
+	 * 
+	 * @param keys
+	 *            the sorted numbers, not empty
+	 * @param number
+	 *            the number used to find the closest to
+	 * @return the index of the closest number
+	 * @since 1.1
+	 */
+	static int getClosestIndex(long[] keys, long number) {
+		int index = Arrays.binarySearch(keys, number);
+		if (index >= 0) {
+			return index;
+		}
+		int above = -index - 1;
+		if (above == 0) {
+			return 0;
+		}
+		if (above == keys.length) {
+			return keys.length - 1;
+		}
+		return (keys[above] - number < number - keys[above - 1]) ? above
+				: above - 1;
+	}
+
+	/**
+	 * Used to split a list to five "equal" parts
+	 * 
+	 * @param list
+	 *            the list to be split
+	 * @return a list containing the five lists
+	 * @since 1.0
+	 */
+	private <T> List<List<T>> splitToFiveLists(List<T> list) {
+		List<List<T>> parts = new ArrayList<List<T>>();
+		final int S = list.size();
+		int partition, step = 0;
+		int remainder = S % 5;
+		if (remainder == 0) {
+			partition = S / 5;
+			step = S / 5;
+		} else {
+			partition = ((S - remainder) / 5) + 1;
+			step = ((S - remainder) / 5) + 1;
+		}
+		if (remainder > 0) {
+			for (int i = 0; i < S - 1; i += step) {
+				if (remainder != -1) {
+					if (remainder > 0) {
+						remainder--;
+					} else {
+						partition--;
+						step--;
+						remainder = -1;
+					}
+				}
+				parts.add(list.subList(i, partition));
+				partition += step;
+			}
+		} else {
+			for (int i = 0; i < S - 1; i += step) {
+				parts.add(list.subList(i, partition));
+				partition += step;
+			}
+		}
+		return parts;
+	}
+}
@@ -25,13 +25,21 @@
 package com.bombardier.plugin.scheduling;
 
 import hudson.FilePath;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.bombardier.plugin.utils.FilePathUtils;
+
 /**
  * Used during the Estimated Execution Time (EET) prediction
  * and test case scheduling. Contains a suite file (#.lst), the collection of
  * test cases referenced in the suite and their total EET. 
+ * <br />
+ * A packet created from a {@link TestTable} holds only the indices of its
+ * test cases. Its {@link TempTest}s and its suite file are created when they
+ * are requested for the first time, i.e. when the packet is dispatched.
  * 
  * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
  * @since 1.0
@@ -41,6 +49,8 @@ public class TestPacket {
 	private FilePath testList;
 	private List<TempTest> tests;
 	private double totalEET;
+	private TestTable table;
+	private int[] indices;
 	
 	/**
 	 * Default constructor used to initialize an instance of
@@ -51,6 +61,24 @@ public class TestPacket {
 		this.totalEET = 0;
 	}
 
+	/**
+	 * Used to initialize an instance of {@link TestPacket} referencing test
+	 * cases of a {@link TestTable}.
+	 * 
+	 * @param table
+	 *            the {@link TestTable}
+	 * @param indices
+	 *            the indices of the packet's test cases in the table
+	 * @param totalEET
+	 *            the total EET
+	 * @since 1.1
+	 */
+	public TestPacket(TestTable table, int[] indices, double totalEET) {
+		this.table = table;
+		this.indices = indices;
+		this.totalEET = totalEET;
+	}
+
 	/**
 	 * Used to get the total Estimated Execution Time (EET).
 	 * @return the EET
@@ -68,10 +96,24 @@ public class TestPacket {
 	}
 
 	/**
-	 * Used to get the test suite (#.lst) file.
+	 * Used to get the test suite (#.lst) file. The file of a packet created
+	 * from a {@link TestTable} is generated on the first call.
 	 * @return the test suite file as {@link FilePath}
+	 * @throws IOException
+	 * @throws InterruptedException
 	 */
-	public FilePath getTestList() {
+	public synchronized FilePath getTestList() throws IOException,
+			InterruptedException {
+		if (testList == null && table != null) {
+			List<String> modifiedPathsList = new ArrayList<String>(
+					indices.length);
+			for (int index : indices) {
+				modifiedPathsList.add(table.getModifiedPath(index));
+			}
+			testList = FilePathUtils.createTempListFile(table.getBuild(),
+					"tempTestList", ".lst");
+			FilePathUtils.writeToTextFile(testList, modifiedPathsList);
+		}
 		return testList;
 	}
 
@@ -84,13 +126,49 @@ public class TestPacket {
 	}
 
 	/**
-	 * Used to get the list of {@link TempTest}s
+	 * Used to get the list of {@link TempTest}s. The {@link TempTest}s of a
+	 * packet created from a {@link TestTable} are created on the first call.
 	 * @return the list
 	 */
-	public List<TempTest> getTests() {
+	public synchronized List<TempTest> getTests() {
+		if (tests == null) {
+			tests = new ArrayList<TempTest>(indices.length);
+			for (int index : indices) {
+				tests.add(table.createTempTest(index));
+			}
+		}
 		return tests;
 	}
 
+	/**
+	 * Used to get the number of test cases in the packet, without creating
+	 * their {@link TempTest}s.
+	 * @return the number of test cases
+	 * @since 1.1
+	 */
+	public int size() {
+		return (tests != null) ? tests.size() : indices.length;
+	}
+
+	/**
+	 * Used to get the {@link TestTable} the packet was created from.
+	 * @return the {@link TestTable} or null
+	 * @since 1.1
+	 */
+	public TestTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Used to get the indices of the packet's test cases in its
+	 * {@link TestTable}.
+	 * @return the indices or null
+	 * @since 1.1
+	 */
+	public int[] getIndices() {
+		return indices;
+	}
+
 	/**
 	 * Used to set the list of {@link TempTest}s
 	 * @param tests the list
@@ -0,0 +1,245 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.scheduling;
+
+import hudson.FilePath;
+
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.bombardier.plugin.cache.CachedTest;
+import com.bombardier.plugin.cache.MetadataCache;
+import com.bombardier.plugin.utils.LineCounter;
+
+/**
+ * Used to scan the test files referenced in a {@link TestTable} in parallel,
+ * on a bounded {@link ForkJoinPool}. The table is split into ranges of rows
+ * and each task writes only the rows of its own range, so the results end up
+ * in the order of the test case list.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class TestScanner extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The maximum number of threads used for the scanning. Can be overridden
+	 * with the system property
+	 * <code>com.bombardier.plugin.scheduling.TestScanner.parallelism</code>.
+	 */
+	public static final int PARALLELISM = Math.max(1, Integer.getInteger(
+			TestScanner.class.getName() + ".parallelism",
+			Math.min(Runtime.getRuntime().availableProcessors(), 8)));
+
+	/**
+	 * The number of rows below which a range is scanned by a single task.
+	 */
+	private static final int THRESHOLD = 64;
+
+	/**
+	 * The {@link LineCounter} (and direct buffer) of each scanning thread. The
+	 * threads of a pool end with the scanning, so do their counters. A small
+	 * table is scanned on the calling thread, which lives on, so its counter
+	 * is removed right after the scanning.
+	 */
+	private static final ThreadLocal<LineCounter> COUNTERS = new ThreadLocal<LineCounter>() {
+		@Override
+		protected LineCounter initialValue() {
+			return new LineCounter(true);
+		}
+	};
+
+	private final TestTable table;
+	private final int from;
+	private final int to;
+	private final boolean readContents;
+
+	/**
+	 * Used to initialize an instance of the {@link TestScanner}.
+	 * 
+	 * @param table
+	 *            the {@link TestTable}
+	 * @param from
+	 *            the first row (inclusive)
+	 * @param to
+	 *            the last row (exclusive)
+	 * @param readContents
+	 *            false to read only the file metadata, true to read the
+	 *            contents of the files that haven't been scanned yet
+	 */
+	private TestScanner(TestTable table, int from, int to,
+			boolean readContents) {
+		this.table = table;
+		this.from = from;
+		this.to = to;
+		this.readContents = readContents;
+	}
+
+	/**
+	 * Used to read the size and the modification time of each test file in
+	 * the {@link TestTable}.
+	 * 
+	 * @param table
+	 *            the {@link TestTable}
+	 * @since 1.1
+	 */
+	public static void stat(TestTable table) {
+		invoke(new TestScanner(table, 0, table.size(), false));
+	}
+
+	/**
+	 * Used to read the number of lines and the content hash of each test file
+	 * in the {@link TestTable} that hasn't been scanned yet.
+	 * 
+	 * @param table
+	 *            the {@link TestTable}
+	 * @since 1.1
+	 */
+	public static void scan(TestTable table) {
+		invoke(new TestScanner(table, 0, table.size(), true));
+	}
+
+	/**
+	 * Used to read the number of lines and the content hash of each test file
+	 * in the {@link TestTable} that hasn't been scanned yet, using the
+	 * {@link MetadataCache} for the unchanged files. The cache is updated with
+	 * the scanned files and the deleted files are removed from it.
+	 * 
+	 * @param table
+	 *            the {@link TestTable}
+	 * @param metadata
+	 *            the {@link MetadataCache} of the project
+	 * @return the number of files that had to be read
+	 * @since 1.1
+	 */
+	public static int scan(TestTable table, MetadataCache metadata) {
+		int toBeScanned = 0;
+		for (int i = 0; i < table.size(); i++) {
+			if (table.isScanned(i)) {
+				continue;
+			}
+			CachedTest test = metadata.get(table.getPath(i),
+					table.getBytes(i), table.getModified(i));
+			if (test != null) {
+				table.setLines(i, test.getLines());
+				table.setHash(i, test.getHash());
+			} else {
+				toBeScanned++;
+			}
+		}
+
+		if (toBeScanned > 0) {
+			scan(table);
+		}
+
+		Set<String> existing = new HashSet<String>(table.size() * 2);
+		for (int i = 0; i < table.size(); i++) {
+			if (!table.isScanned(i)) {
+				continue;
+			}
+			existing.add(table.getPath(i));
+			if (metadata.get(table.getPath(i), table.getBytes(i),
+					table.getModified(i)) == null) {
+				CachedTest test = new CachedTest(table.getPath(i),
+						table.getBytes(i), table.getModified(i));
+				test.setLines(table.getLines(i));
+				test.setHash(table.getHash(i));
+				metadata.put(test);
+			}
+		}
+		metadata.removeDeleted(existing);
+		return toBeScanned;
+	}
+
+	/**
+	 * Used to run a scanning task on a new bounded {@link ForkJoinPool} and
+	 * wait for its completion.
+	 * 
+	 * @param task
+	 *            the task
+	 */
+	private static void invoke(TestScanner task) {
+		if (task.to - task.from <= THRESHOLD) {
+			try {
+				task.compute();
+			} finally {
+				COUNTERS.remove();
+			}
+			return;
+		}
+		ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+		try {
+			pool.invoke(task);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Override
+	protected void compute() {
+		if (to - from <= THRESHOLD) {
+			LineCounter counter = readContents ? COUNTERS.get() : null;
+			for (int i = from; i < to; i++) {
+				scanTest(i, counter);
+			}
+		} else {
+			int middle = (from + to) >>> 1;
+			invokeAll(new TestScanner(table, from, middle, readContents),
+					new TestScanner(table, middle, to, readContents));
+		}
+	}
+
+	/**
+	 * Used to scan a single row of the {@link TestTable}.
+	 * 
+	 * @param index
+	 *            the row
+	 * @param counter
+	 *            the {@link LineCounter} used to read the file contents
+	 */
+	private void scanTest(int index, LineCounter counter) {
+		try {
+			FilePath testFile = table.getTestFile(index);
+			if (readContents) {
+				if (!table.isScanned(index)) {
+					table.setLines(index, counter.count(Paths.get(testFile
+							.absolutize().toURI())));
+					table.setHash(index, counter.getHash());
+				}
+			} else {
+				table.setBytes(index, testFile.length());
+				table.setModified(index, testFile.lastModified());
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -29,30 +29,30 @@ import hudson.model.BuildListener;
 import hudson.model.AbstractBuild;
 import hudson.model.Node;
 
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Map;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.function.Predicate;
 
 import javax.annotation.Nonnull;
 
-import org.apache.commons.lang.StringUtils;
-
+import com.bombardier.plugin.DTBuild;
+import com.bombardier.plugin.cache.CachedPacket;
+import com.bombardier.plugin.cache.CachedTest;
+import com.bombardier.plugin.cache.MetadataCache;
+import com.bombardier.plugin.cache.ScheduleCache;
 import com.bombardier.plugin.history.History;
-import com.bombardier.plugin.history.Test;
 import com.bombardier.plugin.misc.GenericEntry;
+import com.bombardier.plugin.misc.PrintMessages;
+import com.bombardier.plugin.reservation.NodeScorer;
+import com.bombardier.plugin.utils.CacheUtils;
 import com.bombardier.plugin.utils.FilePathUtils;
 import com.bombardier.plugin.utils.HistoryAndStatsUtils;
 
@@ -64,10 +64,17 @@ import com.bombardier.plugin.utils.HistoryAndStatsUtils;
  */
 public class TestScheduler {
 
+	/**
+	 * The maximum ratio of added/removed test cases for which a cached
+	 * schedule is repaired instead of being recomputed.
+	 */
+	private static final double MAX_REPAIR_RATIO = 0.1;
+
 	private final AbstractBuild<?, ?> build;
 	private final FilePath listFile;
 	private Set<Node> nodes;
 	private final BuildListener listener;
+	private EETEstimator estimator;
 
 	/**
 	 * Used to initialize an instance of the {@link TestScheduler}.
@@ -104,117 +111,40 @@ public class TestScheduler {
 	public GenericEntry<LinkedList<TestPacket>, Integer> customCManager()
 			throws Exception {
 
-		Set<Node> nodesToBeLocked = new HashSet<Node>();
-		Iterator<Node> nodeIterator = nodes.iterator();
 		// Deletes the previous temporary list files
 		FilePathUtils.getPathToTempListsFolder(build).deleteContents();
 
 		List<TestPacket> listOfTestPackets = new ArrayList<TestPacket>();
 
-		List<GenericEntry<TempTest, Double>> listOfSortedTests = sortedListOfTests(
-				FilePathUtils.readTextFileByLines(listFile),
-				listFile.getParent());
+		TestTable table = createTestTable(FilePathUtils
+				.readTextFileByLines(listFile));
+		scanTests(table);
+		estimateTests(table);
+		int[] sorted = table.getScannedSortedByEET();
 
-		int numOfTests = listOfSortedTests.size();
+		int numOfTests = sorted.length;
 
 		if (nodes.size() >= numOfTests) {
-			for (GenericEntry<TempTest, Double> entry : listOfSortedTests) {
-				listOfTestPackets.add(createTestPacket(entry));
-				if (nodeIterator.hasNext()) {
-					nodesToBeLocked.add(nodeIterator.next());
-					nodeIterator.remove();
-				}
+			for (int index : sorted) {
+				listOfTestPackets.add(createTestPacket(table, index));
 			}
-			nodes = nodesToBeLocked;
+			lockRequiredNodes(numOfTests);
 		} else {
-
-			int currNumOfTests = listOfSortedTests.size();
+			// the remaining tests are sorted[range[0]] .. sorted[range[1]]
+			int[] range = new int[] { 0, numOfTests - 1 };
+			int[] scratch = new int[numOfTests];
 
 			// Create the base/first packet of the list
-			TestPacket firstTestPacket = createTestPacket(listOfSortedTests
-					.get(currNumOfTests - 1));
+			TestPacket firstTestPacket = createTestPacket(table,
+					sorted[range[1]--]);
 			listOfTestPackets.add(firstTestPacket);
-			listOfSortedTests.remove(currNumOfTests - 1);
-
-			while (listOfSortedTests.size() > 0) {
-				currNumOfTests = listOfSortedTests.size();
-
-				TestPacket testPacket = new TestPacket();
-
-				List<String> modifiedPathsList = new ArrayList<String>();
-				boolean equalized = false;
-				while (!equalized) {
-					currNumOfTests = listOfSortedTests.size();
-					if (currNumOfTests > 0) {
-
-						GenericEntry<TempTest, Double> entry = listOfSortedTests
-								.get(currNumOfTests - 1);
-						TempTest t = entry.getKey();
-
-						if (firstTestPacket.getTotalEET() > (testPacket
-								.getTotalEET() + entry.getValue())) {
-							t = entry.getKey();
-							modifiedPathsList.add(t.getModifiedPath());
-							testPacket.getTests().add(t);
-							testPacket
-									.setTotalEET(Math.round((testPacket
-											.getTotalEET() + entry.getValue()) * 100.0) / 100.0);
-							listOfSortedTests.remove(currNumOfTests - 1);
-						} else {
-							if (firstTestPacket.getTotalEET() == (testPacket
-									.getTotalEET() + entry.getValue())) {
-
-								t = entry.getKey();
-								modifiedPathsList.add(t.getModifiedPath());
-								testPacket.getTests().add(t);
-								testPacket
-										.setTotalEET(Math.round((testPacket
-												.getTotalEET() + entry
-												.getValue()) * 100.0) / 100.0);
-								listOfSortedTests.remove(currNumOfTests - 1);
-
-								equalized = true;
-							} else {
-								entry = listOfSortedTests.get(0);
-								if (firstTestPacket.getTotalEET() > (testPacket
-										.getTotalEET() + entry.getValue())) {
-									t = entry.getKey();
-
-									modifiedPathsList.add(t.getModifiedPath());
-									testPacket.getTests().add(t);
-									testPacket
-											.setTotalEET(Math.round((testPacket
-													.getTotalEET() + entry
-													.getValue()) * 100.0) / 100.0);
-									listOfSortedTests.remove(0);
-								} else {
-									if (firstTestPacket.getTotalEET() == (testPacket
-											.getTotalEET() + entry.getValue())) {
-										t = entry.getKey();
-
-										modifiedPathsList.add(t
-												.getModifiedPath());
-										testPacket.getTests().add(t);
-										testPacket
-												.setTotalEET(Math.round((testPacket
-														.getTotalEET() + entry
-														.getValue()) * 100.0) / 100.0);
-										listOfSortedTests.remove(0);
-										equalized = true;
-									} else {
-										equalized = true;
-									}
-								}
-							}
-						}
-					} else {
-						break;
-					}
+
+			while (range[0] <= range[1]) {
+				TestPacket testPacket = createEqualizedPacket(table, sorted,
+						range, scratch, firstTestPacket.getTotalEET());
+				if (testPacket == null) {
+					break;
 				}
-				FilePath tempListFile = FilePathUtils.createTempListFile(build,
-						"tempTestList", ".lst");
-				FilePathUtils.writeToTextFile(tempListFile, modifiedPathsList);
-				testPacket.setTestList(tempListFile);
 				listOfTestPackets.add(testPacket);
 			}
 
@@ -233,7 +163,11 @@ public class TestScheduler {
 
 	/**
 	 * Used to spit the test cases to a number of {@link TestPacket} based on
-	 * the number of test slaves and the testing {@link History}.
+	 * the number of test slaves and the testing {@link History}. The computed
+	 * schedule is cached and reused, or repaired, as long as the test case
+	 * list doesn't change (much). Once test results are recorded, the cached
+	 * test cases are only re-estimated from the current history - they are
+	 * neither scanned nor split again.
 	 * 
 	 * @return a list containing lists of {@link TestPacket} (the number of
 	 *         {@link TestPacket}s in a list <= number of Slave {@link Node}s)
@@ -243,140 +177,100 @@ public class TestScheduler {
 	public LinkedList<LinkedList<TestPacket>> customSplitAlgorithm()
 			throws Exception {
 
+		TestTable table = createTestTable(FilePathUtils
+				.readTextFileByLines(listFile));
+		String fingerprint = CacheUtils.getFingerprint(table, nodes.size());
+		String historyStamp = CacheUtils.getHistoryStamp();
+		ScheduleCache cache = CacheUtils.getScheduleCache(build);
+
+		if (cache != null) {
+			boolean reestimate = !cache.isEstimatedWith(historyStamp);
+			if (cache.isValidFor(fingerprint)) {
+				PrintMessages.printScheduleReusedFromCache(listener
+						.getLogger());
+				for (int i = 0; i < table.size(); i++) {
+					CachedTest cachedTest = cache.getTests().get(i);
+					table.setLines(i, cachedTest.getLines());
+					table.setEET(i, cachedTest.getEET());
+				}
+				if (reestimate) {
+					reestimateSchedule(cache, table);
+					cache.setHistoryStamp(historyStamp);
+					cache.setTests(createCachedTests(table));
+					CacheUtils.saveScheduleCache(build, cache);
+				}
+				return restoreTestPackets(cache, table);
+			}
+			if (cache.isRepairableFor(nodes.size())
+					&& nodes.size() < table.size()
+					&& repairSchedule(cache, table, reestimate)) {
+				cache.setFingerprint(fingerprint);
+				cache.setHistoryStamp(historyStamp);
+				cache.setTests(createCachedTests(table));
+				CacheUtils.saveScheduleCache(build, cache);
+				return restoreTestPackets(cache, table);
+			}
+		}
+
+		// The unchanged test cases are not read again, thanks to the metadata
+		// cache
+		scanTests(table);
+		estimateTests(table);
+		LinkedList<LinkedList<TestPacket>> listOfTestPackets = splitSortedTests(
+				table, table.getScannedSortedByEET());
+
+		CacheUtils.saveScheduleCache(build,
+				createScheduleCache(fingerprint, historyStamp, table,
+						listOfTestPackets));
+
+		return listOfTestPackets;
+	}
+
+	/**
+	 * Used to spit the sorted test cases to a number of {@link TestPacket}
+	 * based on the number of test slaves.
+	 * 
+	 * @param table
+	 *            the {@link TestTable}
+	 * @param sorted
+	 *            the indices of the test cases sorted by their EET
+	 * @return a list containing lists of {@link TestPacket} (the number of
+	 *         {@link TestPacket}s in a list <= number of Slave {@link Node}s)
+	 * @since 1.0
+	 */
+	private LinkedList<LinkedList<TestPacket>> splitSortedTests(
+			TestTable table, int[] sorted) {
+
 		LinkedList<LinkedList<TestPacket>> listOfTestPackets = new LinkedList<LinkedList<TestPacket>>();
 
-		List<GenericEntry<TempTest, Double>> listOfSortedTests = sortedListOfTests(
-				FilePathUtils.readTextFileByLines(listFile),
-				listFile.getParent());
+		int numOfTests = sorted.length;
 
-		int numOfTests = listOfSortedTests.size();
-		
-		Set<Node> nodesToBeLocked = new HashSet<Node>();
-		Iterator<Node> nodeIterator = nodes.iterator();
-		
 		if (nodes.size() >= numOfTests) {
 			LinkedList<TestPacket> testPacketList = new LinkedList<TestPacket>();
-			for (GenericEntry<TempTest, Double> entry : listOfSortedTests) {
-				testPacketList.add(createTestPacket(entry));
-				if (nodeIterator.hasNext()) {
-					nodesToBeLocked.add(nodeIterator.next());
-					nodeIterator.remove();
-				}
+			for (int index : sorted) {
+				testPacketList.add(createTestPacket(table, index));
 			}
-			nodes = nodesToBeLocked;
+			lockRequiredNodes(numOfTests);
 			listOfTestPackets.add(testPacketList);
 		} else {
-			while (listOfSortedTests.size() > 0) {
-				int currNumOfTests = listOfSortedTests.size();
+			// the remaining tests are sorted[range[0]] .. sorted[range[1]]
+			int[] range = new int[] { 0, numOfTests - 1 };
+			int[] scratch = new int[numOfTests];
 
+			while (range[0] <= range[1]) {
 				LinkedList<TestPacket> testPacketList = new LinkedList<TestPacket>();
 
 				// Create the base/first packet of the list
-				GenericEntry<TempTest, Double> firstEntry = listOfSortedTests
-						.get(currNumOfTests - 1);
-				TestPacket firstTestPacket = createTestPacket(firstEntry);
-
+				TestPacket firstTestPacket = createTestPacket(table,
+						sorted[range[1]--]);
 				testPacketList.add(firstTestPacket);
-				listOfSortedTests.remove(currNumOfTests - 1);
-				if (listOfSortedTests.size() > 0) {
-					nodes: for (int i = 1; i < nodes.size(); i++) {
-						if (listOfSortedTests.size() > 0) {
-							TestPacket testPacket = new TestPacket();
-							List<String> modifiedPathsList = new ArrayList<String>();
-							boolean equalized = false;
-							while (!equalized) {
-								currNumOfTests = listOfSortedTests.size();
-								if (currNumOfTests > 0) {
-
-									GenericEntry<TempTest, Double> entry = listOfSortedTests
-											.get(currNumOfTests - 1);
-									TempTest t = entry.getKey();
-
-									if (firstTestPacket.getTotalEET() > (testPacket
-											.getTotalEET() + entry.getValue())) {
-										t = entry.getKey();
-										modifiedPathsList.add(t
-												.getModifiedPath());
-										testPacket.getTests().add(t);
-										testPacket
-												.setTotalEET(Math.round((testPacket
-														.getTotalEET() + entry
-														.getValue()) * 100.0) / 100.0);
-										listOfSortedTests
-												.remove(currNumOfTests - 1);
-									} else {
-										if (firstTestPacket.getTotalEET() == (testPacket
-												.getTotalEET() + entry
-												.getValue())) {
-
-											t = entry.getKey();
-											modifiedPathsList.add(t
-													.getModifiedPath());
-											testPacket.getTests().add(t);
-											testPacket
-													.setTotalEET(Math.round((testPacket
-															.getTotalEET() + entry
-															.getValue()) * 100.0) / 100.0);
-											listOfSortedTests
-													.remove(currNumOfTests - 1);
-
-											equalized = true;
-										} else {
-											entry = listOfSortedTests.get(0);
-											if (firstTestPacket.getTotalEET() > (testPacket
-													.getTotalEET() + entry
-													.getValue())) {
-												t = entry.getKey();
-
-												modifiedPathsList.add(t
-														.getModifiedPath());
-												testPacket.getTests().add(t);
-												testPacket
-														.setTotalEET(Math
-																.round((testPacket
-																		.getTotalEET() + entry
-																		.getValue()) * 100.0) / 100.0);
-												listOfSortedTests.remove(0);
-											} else {
-												if (firstTestPacket
-														.getTotalEET() == (testPacket
-														.getTotalEET() + entry
-														.getValue())) {
-													t = entry.getKey();
-
-													modifiedPathsList.add(t
-															.getModifiedPath());
-													testPacket.getTests()
-															.add(t);
-													testPacket
-															.setTotalEET(Math
-																	.round((testPacket
-																			.getTotalEET() + entry
-																			.getValue()) * 100.0) / 100.0);
-													listOfSortedTests.remove(0);
-													equalized = true;
-												} else {
-													equalized = true;
-												}
-											}
-										}
-									}
-								} else {
-									equalized = true;
-								}
-							}
-							if (modifiedPathsList.size() > 0) {
-								FilePath tempListFile = FilePathUtils
-										.createTempListFile(build,
-												"tempTestList", ".lst");
-								FilePathUtils.writeToTextFile(tempListFile,
-										modifiedPathsList);
-								testPacket.setTestList(tempListFile);
-								testPacketList.add(testPacket);
-							}
-						} else {
-							break nodes;
-						}
+
+				for (int i = 1; i < nodes.size() && range[0] <= range[1]; i++) {
+					TestPacket testPacket = createEqualizedPacket(table,
+							sorted, range, scratch,
+							firstTestPacket.getTotalEET());
+					if (testPacket != null) {
+						testPacketList.add(testPacket);
 					}
 				}
 				listOfTestPackets.add(testPacketList);
@@ -387,344 +281,484 @@ public class TestScheduler {
 	}
 
 	/**
-	 * Used to create a single {@link TestPacket} containing a single
-	 * {@link TempTest}.
+	 * Used to create a {@link TestPacket} which total EET is equalized with a
+	 * target EET. The test cases are taken from both ends of the remaining
+	 * sorted test cases - the longest first, then the shortest.
 	 * 
-	 * @param entry
-	 *            an {@link GenericEntry} containing the {@link TempTest} to be
-	 *            included and its EET
+	 * @param table
+	 *            the {@link TestTable}
+	 * @param sorted
+	 *            the indices of the test cases sorted by their EET
+	 * @param range
+	 *            the first and the last position of the remaining test cases
+	 *            in the sorted indices, updated as test cases are taken
+	 * @param scratch
+	 *            a buffer large enough to hold all test cases
+	 * @param targetEET
+	 *            the EET to be equalized with
+	 * @return the {@link TestPacket} or null if no test case fits in it
+	 * @since 1.1
+	 */
+	private TestPacket createEqualizedPacket(TestTable table, int[] sorted,
+			int[] range, int[] scratch, double targetEET) {
+		int count = 0;
+		double totalEET = 0;
+		boolean equalized = false;
+		while (!equalized && range[0] <= range[1]) {
+			int index = sorted[range[1]];
+			double eet = table.getEET(index);
+			if (targetEET > (totalEET + eet)) {
+				scratch[count++] = index;
+				totalEET = Math.round((totalEET + eet) * 100.0) / 100.0;
+				range[1]--;
+			} else if (targetEET == (totalEET + eet)) {
+				scratch[count++] = index;
+				totalEET = Math.round((totalEET + eet) * 100.0) / 100.0;
+				range[1]--;
+				equalized = true;
+			} else {
+				index = sorted[range[0]];
+				eet = table.getEET(index);
+				if (targetEET > (totalEET + eet)) {
+					scratch[count++] = index;
+					totalEET = Math.round((totalEET + eet) * 100.0) / 100.0;
+					range[0]++;
+				} else if (targetEET == (totalEET + eet)) {
+					scratch[count++] = index;
+					totalEET = Math.round((totalEET + eet) * 100.0) / 100.0;
+					range[0]++;
+					equalized = true;
+				} else {
+					equalized = true;
+				}
+			}
+		}
+		if (count == 0) {
+			return null;
+		}
+		return new TestPacket(table, Arrays.copyOf(scratch, count), totalEET);
+	}
+
+	/**
+	 * Used to create a single {@link TestPacket} containing a single test
+	 * case.
+	 * 
+	 * @param table
+	 *            the {@link TestTable}
+	 * @param index
+	 *            the index of the test case to be included
 	 * @return the created {@link TestPacket}
-	 * @throws IOException
-	 * @throws InterruptedException
 	 * @since 1.0
 	 */
-	private TestPacket createTestPacket(GenericEntry<TempTest, Double> entry)
-			throws IOException, InterruptedException {
-		TestPacket tp = new TestPacket();
-		tp.getTests().add(entry.getKey());
-
-		List<String> modPaths = new ArrayList<String>();
-		modPaths.add(entry.getKey().getModifiedPath());
-
-		FilePath tempListFile = FilePathUtils.createTempListFile(build,
-				"tempTestList", ".lst");
-		FilePathUtils.writeToTextFile(tempListFile, modPaths);
-
-		tp.setTotalEET(entry.getValue());
-		tp.setTestList(tempListFile);
-		return tp;
+	private TestPacket createTestPacket(TestTable table, int index) {
+		return new TestPacket(table, new int[] { index }, table.getEET(index));
 	}
 
 	/**
-	 * Used to get a sorted list of {@link TempTest} and their Estimated
-	 * execution time.
+	 * Used to create the {@link TestTable} of a test case list. Only the file
+	 * metadata (size and modification time) is read at this point, in
+	 * parallel.
 	 * 
 	 * @param listOfTests
-	 *            the list of paths to test cases
-	 * @param base
-	 *            the base file directory
-	 * @return the sorted list
-	 * @since 1.0
+	 *            the list of paths to test cases, relative to the list file
+	 * @return the {@link TestTable}
+	 * @throws Exception
+	 * @since 1.1
 	 */
-	private List<GenericEntry<TempTest, Double>> sortedListOfTests(
-			List<String> listOfTests, FilePath base) {
-		List<GenericEntry<TempTest, Double>> mapOfTests = new ArrayList<GenericEntry<TempTest, Double>>();
+	private TestTable createTestTable(List<String> listOfTests)
+			throws Exception {
+		FilePath base = listFile.getParent();
+		TestTable table = new TestTable(build, listOfTests.size());
 		for (String testPath : listOfTests) {
-			try {
-				FilePath testFile = new FilePath(base, testPath);
-				Test test = new Test();
-
-				test.setName(testFile.getBaseName());
-				test.setBytes(testFile.getTotalDiskSpace());
-				test.setLines(getNumOfLines(testFile));
-
-				TempTest tempTest = new TempTest();
-				tempTest.setTest(test);
-				tempTest.setTestFile(testFile);
-				tempTest.setModifiedPath(modifyPathToTestCase(build, testFile));
-
-				mapOfTests.add(new GenericEntry<TempTest, Double>(tempTest,
-						EET(test)));
+			table.add(new FilePath(base, testPath).getRemote(), 0, 0);
+		}
+		TestScanner.stat(table);
+		return table;
+	}
 
-			} catch (Exception e) {
-				e.printStackTrace();
+	/**
+	 * Used to read the number of lines of each test case in the
+	 * {@link TestTable} that hasn't been scanned yet. The lines of the
+	 * unchanged test files are taken from the {@link MetadataCache} of the
+	 * project and only the new or modified ones are read, in parallel.
+	 * 
+	 * @param table
+	 *            the {@link TestTable}
+	 * @throws Exception
+	 * @since 1.1
+	 */
+	private void scanTests(TestTable table) throws Exception {
+		String jobName = ((DTBuild) build).getTestJob().getName();
+		MetadataCache metadata = CacheUtils.getMetadataCache(jobName);
+
+		int notScanned = 0;
+		for (int i = 0; i < table.size(); i++) {
+			if (!table.isScanned(i)) {
+				notScanned++;
 			}
 		}
-		return sortByValue(mapOfTests);
+		int scanned = TestScanner.scan(table, metadata);
+		PrintMessages.printTestMetadataUsage(listener.getLogger(), notScanned
+				- scanned, scanned);
+		CacheUtils.saveMetadataCache(jobName, metadata);
 	}
 
 	/**
-	 * Used to get the Estimated execution time (EET) of a {@link Test} case.
+	 * Used to calculate the Estimated execution time (EET) of each scanned
+	 * test case in the {@link TestTable}.
 	 * 
-	 * @param test
-	 *            the {@link Test} case to be evaluated
-	 * @return
-	 * @throws Exception 
-	 * @since 1.0
+	 * @param table
+	 *            the {@link TestTable}
+	 * @throws Exception
+	 * @since 1.1
 	 */
-	private double EET(Test test) throws Exception {
-		TreeMap<Integer, Double> sortedByLines = new TreeMap<Integer, Double>();
-		TreeMap<Long, Double> sortedBySize = new TreeMap<Long, Double>();
-		for (Test t : HistoryAndStatsUtils.getTestingHistory().getTests()) {
-			sortedByLines.put(t.getLines(), t.getExecutionTime());
-			sortedBySize.put(t.getBytes(), t.getExecutionTime());
+	private void estimateTests(TestTable table) throws Exception {
+		EETEstimator estimator = getEstimator();
+		for (int i = 0; i < table.size(); i++) {
+			if (table.isScanned(i)) {
+				try {
+					table.setEET(i, estimator.estimate(table.getLines(i),
+							table.getBytes(i)));
+				} catch (Exception e) {
+					table.setLines(i, TestTable.NOT_SCANNED);
+					e.printStackTrace();
+				}
+			}
 		}
-
-		double avgPerByte = getAveragePerByte(getSubMapForSize(sortedBySize,
-				test.getBytes()));
-		double avgPerLine = getAveragePerLine(getSubMapForLines(sortedByLines,
-				test.getLines()));
-
-		return getEstimatedExecutionTime(test, avgPerLine, avgPerByte);
 	}
 
 	/**
-	 * Used to calculate the Estimated execution time (EET) of a {@link Test}
-	 * case.
+	 * Used to get the {@link EETEstimator}. The testing {@link History} is
+	 * read only once per scheduling.
 	 * 
-	 * @param test
-	 *            the {@link Test} case to be evaluated
-	 * @param avgPerLine
-	 *            the average execution time per line
-	 * @param avgPerByte
-	 *            the average execution time per byte
-	 * @return the EET of the {@link Test} case
+	 * @return the {@link EETEstimator}
+	 * @throws Exception
+	 * @since 1.1
 	 */
-	private double getEstimatedExecutionTime(Test test, double avgPerLine,
-			double avgPerByte) {
-		return Math.round((((avgPerLine * test.getLines()) + (avgPerByte * test
-				.getBytes())) / 2) * 100.0) / 100.0;
+	private EETEstimator getEstimator() throws Exception {
+		if (estimator == null) {
+			estimator = new EETEstimator(
+					HistoryAndStatsUtils.getTestingHistory());
+		}
+		return estimator;
 	}
 
 	/**
-	 * Used to calculate average execution time per byte
+	 * Used to repair a cached schedule in place when only a few test cases
+	 * were added, removed or modified. The removed ones are taken out of
+	 * their packets and the added ones are placed, the longest first, in the
+	 * packet with the lowest total EET. The packets of the repaired cache
+	 * reference the test cases by their index in the current
+	 * {@link TestTable}.
 	 * 
-	 * @param map
-	 *            the map containing data about execution time
-	 * @return
-	 * @since 1.0
+	 * @param cache
+	 *            the cached schedule
+	 * @param table
+	 *            the {@link TestTable} of the current test cases
+	 * @param reestimate
+	 *            true if the kept test cases shall be re-estimated from the
+	 *            current testing {@link History}
+	 * @return true if the schedule was repaired, false if it has to be
+	 *         recomputed
+	 * @throws Exception
+	 * @since 1.1
 	 */
-	private double getAveragePerByte(SortedMap<Long, Double> map) {
-		double avg = 0;
-		for (Entry<Long, Double> entry : map.entrySet()) {
-			avg = Math
-					.round(((avg + (entry.getValue() / entry.getKey())) / 2) * 100000.0) / 100000.0;
+	private boolean repairSchedule(ScheduleCache cache, TestTable table,
+			boolean reestimate) throws Exception {
+		List<Integer> added = new ArrayList<Integer>();
+		int removed = reconcileSchedule(cache, table, added);
+		if (added.size() + removed > table.size() * MAX_REPAIR_RATIO
+				|| cache.getPackets().isEmpty()) {
+			return false;
+		}
+		if (reestimate) {
+			reestimateSchedule(cache, table);
 		}
-		return avg;
+
+		// only the added test cases are not scanned at this point
+		scanTests(table);
+		EETEstimator estimator = getEstimator();
+		List<Integer> toBePlaced = new ArrayList<Integer>(added.size());
+		for (int i : added) {
+			if (table.isScanned(i)) {
+				try {
+					table.setEET(i, estimator.estimate(table.getLines(i),
+							table.getBytes(i)));
+					toBePlaced.add(i);
+				} catch (Exception e) {
+					table.setLines(i, TestTable.NOT_SCANNED);
+					e.printStackTrace();
+				}
+			}
+		}
+		placeTests(cache, table, toBePlaced);
+
+		PrintMessages.printScheduleRepaired(listener.getLogger(),
+				added.size(), removed);
+		return true;
 	}
 
 	/**
-	 * Used to calculate the average execution time per line of code.
+	 * Used to re-estimate the scanned test cases of a cached schedule from
+	 * the current testing {@link History}, keeping the packets as they are.
+	 * The test cases are not scanned again - their lines are taken from the
+	 * cache.
 	 * 
-	 * @param map
-	 *            the map containing data about execution time.
-	 * @return
-	 * @since 1.0
+	 * @param cache
+	 *            the cached schedule, mapped to the {@link TestTable}
+	 * @param table
+	 *            the {@link TestTable} of the current test cases
+	 * @throws Exception
+	 * @since 1.1
 	 */
-	private double getAveragePerLine(SortedMap<Integer, Double> map) {
-		double avg = 0;
-		for (Entry<Integer, Double> entry : map.entrySet()) {
-			avg = Math
-					.round(((avg + (entry.getValue() / entry.getKey())) / 2) * 100.0) / 100.0;
+	private void reestimateSchedule(ScheduleCache cache, TestTable table)
+			throws Exception {
+		EETEstimator estimator = getEstimator();
+		for (int i = 0; i < table.size(); i++) {
+			if (table.isScanned(i)) {
+				try {
+					table.setEET(i, estimator.estimate(table.getLines(i),
+							table.getBytes(i)));
+				} catch (Exception e) {
+					// the cached EET is kept
+					e.printStackTrace();
+				}
+			}
 		}
-		return avg;
+		updatePacketTotals(cache, table);
+		PrintMessages.printScheduleReestimated(listener.getLogger());
 	}
 
 	/**
-	 * Used to get a sub map from a whole map based on the closest number of
-	 * lines
+	 * Used to recompute the total EET of each packet of a cached schedule
+	 * from the EETs in the {@link TestTable}.
 	 * 
-	 * @param sortedByLines
-	 *            the whole map
-	 * @param testLines
-	 *            the number of lines
-	 * @return the sub map
-	 * @since 1.0
+	 * @param cache
+	 *            the cached schedule, mapped to the {@link TestTable}
+	 * @param table
+	 *            the {@link TestTable} of the current test cases
+	 * @since 1.1
 	 */
-	private SortedMap<Integer, Double> getSubMapForLines(
-			TreeMap<Integer, Double> sortedByLines, int testLines) {
-		SortedMap<Integer, Double> subMap = new TreeMap<Integer, Double>();
-
-		List<Integer> keyList = new ArrayList<Integer>(sortedByLines.keySet());
-
-		int closest = getClosestLineNum(keyList, testLines);
-
-		List<List<Integer>> list = splitToFiveLists(keyList);
-		for (List<Integer> subList : list) {
-			if (subList.contains(closest)) {
-				subMap = sortedByLines.subMap(subList.get(0),
-						subList.get(subList.size() - 1));
-				break;
+	static void updatePacketTotals(ScheduleCache cache, TestTable table) {
+		for (CachedPacket packet : cache.getPackets()) {
+			double totalEET = 0;
+			for (int i : packet.getIndices()) {
+				totalEET += table.getEET(i);
 			}
+			packet.setTotalEET(Math.round(totalEET * 100.0) / 100.0);
 		}
-
-		return subMap;
 	}
 
 	/**
-	 * Used to get a sub map from a whole map based on the closest number of
-	 * bytes.
+	 * Used to map the packets of a cached schedule to the current
+	 * {@link TestTable}. The unchanged test cases take their lines and EET
+	 * from the cache, the removed or modified ones are taken out of their
+	 * packets and the packets left empty are dropped.
 	 * 
-	 * @param sortedBySize
-	 *            the whole map
-	 * @param bytes
-	 *            the number of bytes
-	 * @return the sub map
-	 * @since 1.0
+	 * @param cache
+	 *            the cached schedule
+	 * @param table
+	 *            the {@link TestTable} of the current test cases
+	 * @param added
+	 *            used to return the indices of the added or modified test
+	 *            cases
+	 * @return the number of test cases taken out of the packets
+	 * @since 1.1
 	 */
-	private SortedMap<Long, Double> getSubMapForSize(
-			TreeMap<Long, Double> sortedBySize, long bytes) {
-		SortedMap<Long, Double> subMap = new TreeMap<Long, Double>();
-
-		List<Long> keyList = new ArrayList<Long>(sortedBySize.keySet());
+	static int reconcileSchedule(ScheduleCache cache, TestTable table,
+			List<Integer> added) {
+		List<CachedTest> cachedTests = cache.getTests();
+		Map<String, Integer> cachedIndexByPath = new HashMap<String, Integer>(
+				cachedTests.size() * 2);
+		for (int c = 0; c < cachedTests.size(); c++) {
+			cachedIndexByPath.put(cachedTests.get(c).getPath(), c);
+		}
 
-		Long closest = getClosestBySizeNum(keyList, bytes);
+		int[] cachedToCurrent = new int[cachedTests.size()];
+		Arrays.fill(cachedToCurrent, -1);
+		for (int i = 0; i < table.size(); i++) {
+			Integer c = cachedIndexByPath.get(table.getPath(i));
+			CachedTest cachedTest = (c != null) ? cachedTests.get(c) : null;
+			if (cachedTest != null && cachedToCurrent[c] == -1
+					&& cachedTest.getBytes() == table.getBytes(i)
+					&& cachedTest.getModified() == table.getModified(i)) {
+				table.setLines(i, cachedTest.getLines());
+				table.setEET(i, cachedTest.getEET());
+				cachedToCurrent[c] = i;
+			} else {
+				added.add(i);
+			}
+		}
 
-		List<List<Long>> list = splitToFiveLists(keyList);
-		for (List<Long> subList : list) {
-			if (subList.contains(closest)) {
-				subMap = sortedBySize.subMap(subList.get(0),
-						subList.get(subList.size() - 1));
-				break;
+		int removed = 0;
+		Iterator<CachedPacket> packetIterator = cache.getPackets().iterator();
+		while (packetIterator.hasNext()) {
+			CachedPacket packet = packetIterator.next();
+			int[] indices = packet.getIndices();
+			int count = 0;
+			for (int c : indices) {
+				if (c >= 0 && c < cachedToCurrent.length
+						&& cachedToCurrent[c] != -1) {
+					indices[count++] = cachedToCurrent[c];
+				} else {
+					if (c >= 0 && c < cachedTests.size()) {
+						packet.setTotalEET(Math.round((packet.getTotalEET() - cachedTests
+								.get(c).getEET()) * 100.0) / 100.0);
+					}
+					removed++;
+				}
+			}
+			if (count == 0) {
+				packetIterator.remove();
+			} else {
+				packet.setIndices(Arrays.copyOf(indices, count));
 			}
 		}
-		return subMap;
+		return removed;
 	}
 
 	/**
-	 * Used to calculate the closest number of bytes to a specified number from
-	 * a list
+	 * Used to place test cases in the packets of a cached schedule, the
+	 * longest first, each in the packet with the lowest total EET.
 	 * 
-	 * @param list
-	 *            the list of numbers
-	 * @param number
-	 *            the number of bytes used to find the closest to
-	 * @return the closest number of bytes
-	 * @since 1.0
+	 * @param cache
+	 *            the cached schedule, with at least one packet
+	 * @param table
+	 *            the {@link TestTable} of the current test cases
+	 * @param tests
+	 *            the indices of the estimated test cases to be placed
+	 * @since 1.1
 	 */
-	private Long getClosestBySizeNum(List<Long> list, long number) {
-		long distance = Math.abs(list.get(0) - number);
-		int index = 0;
-		for (int i = 1; i < list.size(); i++) {
-			long cdistance = Math.abs(list.get(i) - number);
-			if (cdistance < distance) {
-				index = i;
-				distance = cdistance;
+	static void placeTests(ScheduleCache cache, final TestTable table,
+			List<Integer> tests) {
+		Collections.sort(tests, new Comparator<Integer>() {
+			public int compare(Integer i1, Integer i2) {
+				return Double.compare(table.getEET(i2), table.getEET(i1));
+			}
+		});
+		for (int i : tests) {
+			CachedPacket lightest = cache.getPackets().get(0);
+			for (CachedPacket packet : cache.getPackets()) {
+				if (packet.getTotalEET() < lightest.getTotalEET()) {
+					lightest = packet;
+				}
 			}
+			int[] indices = Arrays.copyOf(lightest.getIndices(),
+					lightest.getIndices().length + 1);
+			indices[indices.length - 1] = i;
+			lightest.setIndices(indices);
+			lightest.setTotalEET(Math.round((lightest.getTotalEET() + table
+					.getEET(i)) * 100.0) / 100.0);
 		}
-		return list.get(index);
 	}
 
 	/**
-	 * Used to calculate the closest number of lines to a specified number from
-	 * a list
+	 * Used to recreate the {@link TestPacket}s of a cached schedule. The
+	 * packets reference the test cases by their index in the
+	 * {@link TestTable}.
 	 * 
-	 * @param list
-	 *            the list of numbers
-	 * @param number
-	 *            the number of lines used to find the closest to
-	 * @return the closest number of lines
-	 * @since 1.0
+	 * @param cache
+	 *            the cached schedule
+	 * @param table
+	 *            the {@link TestTable} of the current test cases
+	 * @return a list containing lists of {@link TestPacket}
+	 * @since 1.1
 	 */
-	private int getClosestLineNum(List<Integer> list, int number) {
-		int distance = Math.abs(list.get(0) - number);
-		int index = 0;
-		for (int i = 1; i < list.size(); i++) {
-			int cdistance = Math.abs(list.get(i) - number);
-			if (cdistance < distance) {
-				index = i;
-				distance = cdistance;
+	private LinkedList<LinkedList<TestPacket>> restoreTestPackets(
+			ScheduleCache cache, TestTable table) {
+		LinkedList<LinkedList<TestPacket>> listOfTestPackets = new LinkedList<LinkedList<TestPacket>>();
+
+		int numOfTestPackets = 0;
+		int round = -1;
+		for (CachedPacket packet : cache.getPackets()) {
+			if (packet.getRound() != round || listOfTestPackets.isEmpty()) {
+				round = packet.getRound();
+				listOfTestPackets.add(new LinkedList<TestPacket>());
 			}
+			listOfTestPackets.getLast().add(
+					new TestPacket(table, packet.getIndices(), packet
+							.getTotalEET()));
+			numOfTestPackets++;
 		}
 
-		return list.get(index);
+		if (nodes.size() > numOfTestPackets) {
+			lockRequiredNodes(numOfTestPackets);
+		}
+		return listOfTestPackets;
 	}
 
 	/**
-	 * Used to split a list to three "equal" parts
+	 * Used to create the {@link ScheduleCache} of a computed schedule.
 	 * 
-	 * @param list
-	 *            the list to be split
-	 * @return a list containing the three lists
-	 * @since 1.0
+	 * @param fingerprint
+	 *            the fingerprint of the test case list
+	 * @param historyStamp
+	 *            the stamp of the testing history the EETs were estimated
+	 *            from
+	 * @param table
+	 *            the {@link TestTable} of the test cases
+	 * @param listOfTestPackets
+	 *            the computed schedule
+	 * @return the {@link ScheduleCache}
+	 * @since 1.1
 	 */
-	private <T> List<List<T>> splitToFiveLists(List<T> list) {
-		List<List<T>> parts = new ArrayList<List<T>>();
-		final int S = list.size();
-		int partition, step = 0;
-		int remainder = S % 5;
-		if (remainder == 0) {
-			partition = S / 5;
-			step = S / 5;
-		} else {
-			partition = ((S - remainder) / 5) + 1;
-			step = ((S - remainder) / 5) + 1;
-		}
-		if (remainder > 0) {
-			for (int i = 0; i < S - 1; i += step) {
-				if (remainder != -1) {
-					if (remainder > 0) {
-						remainder--;
-					} else {
-						partition--;
-						step--;
-						remainder = -1;
-					}
-				}
-				parts.add(list.subList(i, partition));
-				partition += step;
-			}
-		} else {
-			for (int i = 0; i < S - 1; i += step) {
-				parts.add(list.subList(i, partition));
-				partition += step;
+	private ScheduleCache createScheduleCache(String fingerprint,
+			String historyStamp, TestTable table,
+			LinkedList<LinkedList<TestPacket>> listOfTestPackets) {
+		ScheduleCache cache = new ScheduleCache();
+		cache.setFingerprint(fingerprint);
+		cache.setHistoryStamp(historyStamp);
+		cache.setNumOfNodes(nodes.size());
+		cache.setTests(createCachedTests(table));
+		int round = 0;
+		for (LinkedList<TestPacket> testPackets : listOfTestPackets) {
+			for (TestPacket testPacket : testPackets) {
+				cache.getPackets().add(
+						new CachedPacket(round, testPacket.getTotalEET(),
+								testPacket.getIndices()));
 			}
+			round++;
 		}
-		return parts;
+		return cache;
 	}
 
 	/**
-	 * Used to sort a list by it value.
+	 * Used to convert the rows of a {@link TestTable} to {@link CachedTest}s,
+	 * in the order of the table.
 	 * 
-	 * @param list
-	 *            the list to be sorted
-	 * @return the sorted list.
-	 * @since 1.0
+	 * @param table
+	 *            the {@link TestTable}
+	 * @return the list of {@link CachedTest}s
+	 * @since 1.1
 	 */
-	private <K, V extends Comparable<? super V>> List<GenericEntry<K, V>> sortByValue(
-			List<GenericEntry<K, V>> list) {
-		List<GenericEntry<K, V>> result = new LinkedList<GenericEntry<K, V>>(
-				list);
-		Collections.sort(list, new Comparator<GenericEntry<K, V>>() {
-			@Override
-			public int compare(GenericEntry<K, V> o1, GenericEntry<K, V> o2) {
-				return (o1.getValue()).compareTo(o2.getValue());
-			}
-		});
-		return result;
+	private List<CachedTest> createCachedTests(TestTable table) {
+		List<CachedTest> tests = new ArrayList<CachedTest>(table.size());
+		for (int i = 0; i < table.size(); i++) {
+			CachedTest test = new CachedTest(table.getPath(i),
+					table.getBytes(i), table.getModified(i));
+			test.setLines(table.getLines(i));
+			test.setEET(table.getEET(i));
+			tests.add(test);
+		}
+		return tests;
 	}
 
 	/**
-	 * Used to get the number of lines in a file ignoring lines that are empty
-	 * or contain only white spaces.
+	 * Used to keep only the number of {@link Node}s required by the schedule,
+	 * the best ranked by the {@link NodeScorer}.
 	 * 
-	 * @param file
-	 *            the file to be read
-	 * @return the number of lines
-	 * @throws Exception
-	 * @since 1.0
+	 * @param numOfNodes
+	 *            the required number of {@link Node}s
+	 * @since 1.1
 	 */
-	private int getNumOfLines(FilePath file) throws Exception {
-		List<String> list = Files.readAllLines(
-				Paths.get(file.absolutize().toURI()), StandardCharsets.UTF_8);
-		// remove empty lines
-		list.removeIf(new Predicate<String>() {
-			@Override
-			public boolean test(String arg0) {
-				return !StringUtils.isNotBlank(arg0);
-			}
-		});
-		return list.size();
+	private void lockRequiredNodes(int numOfNodes) {
+		Set<Node> nodesToBeLocked = new LinkedHashSet<Node>();
+		Iterator<Node> nodeIterator = NodeScorer.rank(
+				((DTBuild) build).getTestJob(), nodes).iterator();
+		while (nodeIterator.hasNext() && nodesToBeLocked.size() < numOfNodes) {
+			nodesToBeLocked.add(nodeIterator.next());
+		}
+		nodes = nodesToBeLocked;
 	}
 
 	/**
@@ -738,9 +772,10 @@ public class TestScheduler {
 	 * @return the modified path
 	 * @since 1.0
 	 */
-	private static String modifyPathToTestCase(AbstractBuild<?, ?> build,
+	static String modifyPathToTestCase(AbstractBuild<?, ?> build,
 			FilePath testCase) {
-		return String.format("./%s/tests/%s", build.getProject().getName(), testCase.getName());
+		return String.format("./%s/%s/tests/%s", build.getProject().getName(),
+				FilePathUtils.getBuildFolderName(build), testCase.getName());
 	}
 	
 	/**
@@ -753,38 +788,23 @@ public class TestScheduler {
 	public List<TestPacket> splitAlgorithm() throws Exception {
 		List<TestPacket> testPackets = new ArrayList<TestPacket>();
 		
-		List<List<String>> lists = splitTestCases();
-		
-		for (List<String> list : lists) {
-			TestPacket testPacket = new TestPacket();
-			List<String> modifiedPathsList = new ArrayList<String>();
-			for (String path : list) {
-				try {
-					FilePath testFile = new FilePath(listFile.getParent(), path);
-					Test test = new Test();
-
-					test.setName(testFile.getBaseName());
-					test.setBytes(testFile.getTotalDiskSpace());
-					test.setLines(getNumOfLines(testFile));
-
-					TempTest tempTest = new TempTest();
-					tempTest.setTest(test);
-					tempTest.setTestFile(testFile);
-					String modifiedPath = modifyPathToTestCase(build, testFile);
-					tempTest.setModifiedPath(modifiedPath);
-					modifiedPathsList.add(modifiedPath);
-
-					testPacket.getTests().add(tempTest);
-				} catch (Exception e) {
-					e.printStackTrace();
+		List<String> testCases = FilePathUtils.readTextFileByLines(listFile);
+		TestTable table = createTestTable(testCases);
+		scanTests(table);
+
+		// the sub-lists are consecutive parts of the test case list
+		int position = 0;
+		for (List<String> list : splitTestCases(testCases)) {
+			int[] indices = new int[list.size()];
+			int count = 0;
+			for (int i = position; i < position + list.size(); i++) {
+				if (table.isScanned(i)) {
+					indices[count++] = i;
 				}
 			}
-			FilePath tempListFile = FilePathUtils.createTempListFile(build,
-					"tempTestList", ".lst");
-			
-			FilePathUtils.writeToTextFile(tempListFile, modifiedPathsList);
-			testPacket.setTestList(tempListFile);
-			testPackets.add(testPacket);
+			position += list.size();
+			testPackets.add(new TestPacket(table, Arrays.copyOf(indices,
+					count), 0));
 		}
 		
 		return testPackets;
@@ -800,9 +820,8 @@ public class TestScheduler {
 	 * @throws Exception
 	 * @since 1.0
 	 */
-	private List<List<String>> splitTestCases()
+	private List<List<String>> splitTestCases(List<String> testCases)
 			throws Exception {
-		List<String> testCases = FilePathUtils.readTextFileByLines(listFile);
 		List<List<String>> lists = new ArrayList<List<String>>();
 		List<String> nodesTestCases = new ArrayList<String>();
 		int numberOfNodes = nodes.size();
@@ -889,13 +908,13 @@ public class TestScheduler {
 			int testRemainder = numberOfTestCases % 2;
 			/* get the number of the slaves required */
 			int numOfNodes = (numberOfTestCases - testRemainder) / 2;
-			Set<Node> nodesToBeLocked = new HashSet<Node>();
-			Iterator<Node> nodeIterator = nodes.iterator();
+			Set<Node> nodesToBeLocked = new LinkedHashSet<Node>();
+			Iterator<Node> nodeIterator = NodeScorer.rank(
+					((DTBuild) build).getTestJob(), nodes).iterator();
 			
 			for (int i = 0; i < numOfNodes; i++) {
 				if(nodeIterator.hasNext()) {
 					nodesToBeLocked.add(nodeIterator.next());
-					nodeIterator.remove();
 				}
 			}
 			nodes = nodesToBeLocked;
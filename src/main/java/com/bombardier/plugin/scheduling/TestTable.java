@@ -0,0 +1,332 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.scheduling;
+
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.bombardier.plugin.history.Test;
+
+/**
+ * A compact, column oriented, table of the test cases referenced in a test
+ * case list. Each test case is identified by its index in the list and its
+ * attributes are kept in primitive arrays, so that the scheduling of very
+ * large lists doesn't require an object per test case. The heavy
+ * {@link TempTest}, {@link Test} and {@link FilePath} objects are created only
+ * for the test cases being dispatched.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class TestTable {
+
+	/**
+	 * The number of lines of a test case that hasn't been scanned or which
+	 * file couldn't be read.
+	 */
+	public static final int NOT_SCANNED = -1;
+
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	private final AbstractBuild<?, ?> build;
+	private String[] paths;
+	private long[] bytes;
+	private long[] modified;
+	private int[] lines;
+	private double[] eet;
+	private String[] hashes;
+	private int size;
+	private Map<String, Integer> indexByPath;
+
+	/**
+	 * Used to initialize an instance of the {@link TestTable}.
+	 * 
+	 * @param build
+	 *            the current build
+	 * @param capacity
+	 *            the expected number of test cases
+	 */
+	public TestTable(AbstractBuild<?, ?> build, int capacity) {
+		this.build = build;
+		capacity = Math.max(capacity, 1);
+		this.paths = new String[capacity];
+		this.bytes = new long[capacity];
+		this.modified = new long[capacity];
+		this.lines = new int[capacity];
+		this.eet = new double[capacity];
+		this.hashes = new String[capacity];
+	}
+
+	/**
+	 * Used to add a test case to the table.
+	 * 
+	 * @param path
+	 *            the absolute path to the test file
+	 * @param bytes
+	 *            the size of the test file
+	 * @param modified
+	 *            the last modification time of the test file
+	 * @return the index of the test case
+	 */
+	public int add(String path, long bytes, long modified) {
+		if (size == paths.length) {
+			int capacity = size * 2;
+			this.paths = Arrays.copyOf(this.paths, capacity);
+			this.bytes = Arrays.copyOf(this.bytes, capacity);
+			this.modified = Arrays.copyOf(this.modified, capacity);
+			this.lines = Arrays.copyOf(this.lines, capacity);
+			this.eet = Arrays.copyOf(this.eet, capacity);
+			this.hashes = Arrays.copyOf(this.hashes, capacity);
+		}
+		this.paths[size] = path.intern();
+		this.bytes[size] = bytes;
+		this.modified[size] = modified;
+		this.lines[size] = NOT_SCANNED;
+		this.hashes[size] = null;
+		this.indexByPath = null;
+		return size++;
+	}
+
+	/**
+	 * Used to get the number of test cases in the table.
+	 * @return the number of test cases
+	 */
+	public int size() {
+		return size;
+	}
+
+	public String getPath(int index) {
+		return paths[index];
+	}
+
+	public long getBytes(int index) {
+		return bytes[index];
+	}
+
+	public void setBytes(int index, long bytes) {
+		this.bytes[index] = bytes;
+	}
+
+	public long getModified(int index) {
+		return modified[index];
+	}
+
+	public void setModified(int index, long modified) {
+		this.modified[index] = modified;
+	}
+
+	public int getLines(int index) {
+		return lines[index];
+	}
+
+	public void setLines(int index, int lines) {
+		this.lines[index] = lines;
+	}
+
+	public double getEET(int index) {
+		return eet[index];
+	}
+
+	public void setEET(int index, double eet) {
+		this.eet[index] = eet;
+	}
+
+	public String getHash(int index) {
+		return hashes[index];
+	}
+
+	public void setHash(int index, String hash) {
+		this.hashes[index] = hash;
+	}
+
+	/**
+	 * Used to check if the test case was successfully scanned.
+	 * 
+	 * @param index
+	 *            the index of the test case
+	 * @return true if its number of lines is known
+	 */
+	public boolean isScanned(int index) {
+		return lines[index] != NOT_SCANNED;
+	}
+
+	/**
+	 * Used to get the index of a test case by its path.
+	 * 
+	 * @param path
+	 *            the absolute path to the test file
+	 * @return the index of the (first) test case or -1 if it is not in the
+	 *         table
+	 */
+	public int indexOf(String path) {
+		if (indexByPath == null) {
+			indexByPath = new HashMap<String, Integer>(size * 2);
+			for (int i = size - 1; i >= 0; i--) {
+				indexByPath.put(paths[i], i);
+			}
+		}
+		Integer index = indexByPath.get(path);
+		return (index != null) ? index : -1;
+	}
+
+	/**
+	 * Used to get the indices of all successfully scanned test cases sorted by
+	 * their EET in ascending order.
+	 * 
+	 * @return the sorted indices
+	 */
+	public int[] getScannedSortedByEET() {
+		int[] indices = new int[size];
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (isScanned(i)) {
+				indices[count++] = i;
+			}
+		}
+		indices = Arrays.copyOf(indices, count);
+		sortByEET(indices, 0, count - 1);
+		return indices;
+	}
+
+	/**
+	 * Used to sort a range of indices by the EET of their test cases, without
+	 * boxing them.
+	 * 
+	 * @param indices
+	 *            the indices
+	 * @param from
+	 *            the first position (inclusive)
+	 * @param to
+	 *            the last position (inclusive)
+	 */
+	private void sortByEET(int[] indices, int from, int to) {
+		while (to - from > INSERTION_SORT_THRESHOLD) {
+			double pivot = eet[indices[(from + to) >>> 1]];
+			int i = from, j = to;
+			while (i <= j) {
+				while (eet[indices[i]] < pivot) {
+					i++;
+				}
+				while (eet[indices[j]] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					int tmp = indices[i];
+					indices[i++] = indices[j];
+					indices[j--] = tmp;
+				}
+			}
+			// recurse into the smaller part, loop over the larger one
+			if (j - from < to - i) {
+				sortByEET(indices, from, j);
+				from = i;
+			} else {
+				sortByEET(indices, i, to);
+				to = j;
+			}
+		}
+		for (int i = from + 1; i <= to; i++) {
+			int index = indices[i];
+			int j = i - 1;
+			while (j >= from && eet[indices[j]] > eet[index]) {
+				indices[j + 1] = indices[j];
+				j--;
+			}
+			indices[j + 1] = index;
+		}
+	}
+
+	/**
+	 * Used to get the test file of a test case.
+	 * 
+	 * @param index
+	 *            the index of the test case
+	 * @return the test file as {@link FilePath}
+	 */
+	public FilePath getTestFile(int index) {
+		return new FilePath(new File(paths[index]));
+	}
+
+	/**
+	 * Used to get the name of a test case - the name of its test file without
+	 * the extension.
+	 * 
+	 * @param index
+	 *            the index of the test case
+	 * @return the name
+	 */
+	public String getName(int index) {
+		return getTestFile(index).getBaseName();
+	}
+
+	/**
+	 * Used to get the path to a test case, modified so that it satisfies the
+	 * directory convention on the target Slave node.
+	 * 
+	 * @param index
+	 *            the index of the test case
+	 * @return the modified path
+	 */
+	public String getModifiedPath(int index) {
+		return TestScheduler.modifyPathToTestCase(build, getTestFile(index));
+	}
+
+	/**
+	 * Used to create the {@link TempTest} of a test case.
+	 * 
+	 * @param index
+	 *            the index of the test case
+	 * @return the {@link TempTest}
+	 */
+	public TempTest createTempTest(int index) {
+		FilePath testFile = getTestFile(index);
+		Test test = new Test();
+
+		test.setName(getName(index));
+		test.setBytes(bytes[index]);
+		test.setLines(Math.max(lines[index], 0));
+
+		TempTest tempTest = new TempTest();
+		tempTest.setTest(test);
+		tempTest.setTestFile(testFile);
+		tempTest.setModifiedPath(TestScheduler.modifyPathToTestCase(build,
+				testFile));
+		return tempTest;
+	}
+
+	/**
+	 * Used to get the current build.
+	 * @return the current build
+	 */
+	public AbstractBuild<?, ?> getBuild() {
+		return build;
+	}
+}
@@ -50,6 +50,10 @@ public class TestResultAdapter extends
 		if (result instanceof TestCaseFail) {
 			TestCaseFail fail = (TestCaseFail) result;
 			adaptedResult.failure = fail.failure;
+		} else if (result instanceof TestCaseSkipped) {
+			TestCaseSkipped skipped = (TestCaseSkipped) result;
+			adaptedResult.skipped = (skipped.skipped != null) ? skipped.skipped
+					: "";
 		} else {
 			TestCaseSuccess success = (TestCaseSuccess) result;
 			adaptedResult.sysOut = success.sysOut;
@@ -67,6 +71,14 @@ public class TestResultAdapter extends
 		if (adaptedResult == null) {
 			return new TestCaseFail();
 		}
+		if (adaptedResult.skipped != null) {
+			TestCaseSkipped skipped = new TestCaseSkipped();
+			skipped.name = adaptedResult.name;
+			skipped.className = adaptedResult.className;
+			skipped.time = adaptedResult.time;
+			skipped.skipped = adaptedResult.skipped;
+			return skipped;
+		}
 		if (adaptedResult.sysOut != null) {
 			TestCaseSuccess success = new TestCaseSuccess();
 			success.name = adaptedResult.name;
@@ -106,6 +118,9 @@ public class TestResultAdapter extends
 		@XmlElement(name = "system-out")
 		public String sysOut;
 
+		@XmlElement(name = "skipped")
+		public String skipped;
+
 	}
 	
 	/**
@@ -126,6 +141,24 @@ public class TestResultAdapter extends
 		
 	}
 	
+	/**
+	 * Used as a container for the test cases that weren't executed.
+	 * @author Samuil Dragnev
+	 * @since 1.1
+	 */
+	public static class TestCaseSkipped extends Result {
+		protected String skipped;
+
+		public String getSkipped() {
+			return skipped;
+		}
+
+		public void setSkipped(String skipped) {
+			this.skipped = skipped;
+		}
+		
+	}
+	
 	/**
 	 * Used a container for the test cases that succeeded.
 	 * @author Samuil Dragnev
@@ -0,0 +1,223 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.utils;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.AbstractBuild;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+import com.bombardier.plugin.cache.MetadataCache;
+import com.bombardier.plugin.cache.ScheduleCache;
+import com.bombardier.plugin.scheduling.EETEstimator;
+import com.bombardier.plugin.scheduling.TestTable;
+
+/**
+ * Contains several helper methods used for reading and writing of the
+ * scheduling caches and for computing the fingerprint of a test case list.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class CacheUtils {
+
+	/**
+	 * The metadata caches of the projects, read from the disk only once and
+	 * shared by all builds of a project.
+	 */
+	private static final ConcurrentMap<String, MetadataCache> METADATA_CACHES = new ConcurrentHashMap<String, MetadataCache>();
+
+	/**
+	 * Used to compute the fingerprint of a test case list - a hash of the
+	 * paths in the list, their sizes and modification times, the number of
+	 * Slave nodes and the version of the {@link EETEstimator}.
+	 * 
+	 * @param table
+	 *            the {@link TestTable} of the test cases in the list
+	 * @param numOfNodes
+	 *            the number of available Slave nodes
+	 * @return the fingerprint as a hex string
+	 * @throws Exception
+	 * @since 1.1
+	 */
+	public static String getFingerprint(TestTable table, int numOfNodes)
+			throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("MD5");
+		digest.update(String.format("%d:%d%n", EETEstimator.VERSION,
+				numOfNodes).getBytes(StandardCharsets.UTF_8));
+		for (int i = 0; i < table.size(); i++) {
+			digest.update(table.getPath(i).getBytes(StandardCharsets.UTF_8));
+			digest.update(String.format(":%d:%d%n", table.getBytes(i),
+					table.getModified(i)).getBytes(StandardCharsets.UTF_8));
+		}
+		return Util.toHexString(digest.digest());
+	}
+
+	/**
+	 * Used to get the stamp of the testing history - its size and
+	 * modification time, which change whenever test results are recorded.
+	 * 
+	 * @return the stamp
+	 * @throws Exception
+	 * @since 1.1
+	 */
+	public static String getHistoryStamp() throws Exception {
+		FilePath historyFile = FilePathUtils.getHistoryFile();
+		return historyFile.length() + ":" + historyFile.lastModified();
+	}
+
+	/**
+	 * Used to get the cached schedule of the project.
+	 * 
+	 * @param build
+	 *            the current build
+	 * @return the {@link ScheduleCache} or null if there is no (readable)
+	 *         cache
+	 * @throws Exception
+	 * @since 1.1
+	 */
+	public static ScheduleCache getScheduleCache(AbstractBuild<?, ?> build)
+			throws Exception {
+		FilePath cacheFile = FilePathUtils.getScheduleCacheFile(build);
+		if (!cacheFile.exists()) {
+			return null;
+		}
+		try {
+			JAXBContext context = JAXBContext.newInstance(ScheduleCache.class);
+			Unmarshaller unmarshaller = context.createUnmarshaller();
+			return (ScheduleCache) unmarshaller.unmarshal(cacheFile.read());
+		} catch (JAXBException e) {
+			// a corrupted cache is simply recomputed
+			return null;
+		}
+	}
+
+	/**
+	 * Used to persist the schedule of the project.
+	 * 
+	 * @param build
+	 *            the current build
+	 * @param cache
+	 *            the {@link ScheduleCache} to be saved
+	 * @throws Exception
+	 * @since 1.1
+	 */
+	public static synchronized void saveScheduleCache(AbstractBuild<?, ?> build,
+			ScheduleCache cache) throws Exception {
+		FilePath cacheFile = FilePathUtils.getScheduleCacheFile(build);
+		JAXBContext context = JAXBContext.newInstance(ScheduleCache.class);
+		Marshaller marshaller = context.createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+		marshaller.marshal(cache, new File(cacheFile.toURI()));
+	}
+
+	/**
+	 * Used to get the shared metadata cache of the test files of a project.
+	 * The cache is read from the disk on the first access.
+	 * 
+	 * @param jobName
+	 *            the name of the project
+	 * @return the {@link MetadataCache}, empty if there is no (readable)
+	 *         cache file
+	 * @throws Exception
+	 * @since 1.1
+	 */
+	public static MetadataCache getMetadataCache(String jobName)
+			throws Exception {
+		MetadataCache cache = METADATA_CACHES.get(jobName);
+		if (cache == null) {
+			cache = readMetadataCache(jobName);
+			MetadataCache previous = METADATA_CACHES.putIfAbsent(jobName,
+					cache);
+			if (previous != null) {
+				cache = previous;
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Used to persist the metadata cache of a project, if it was changed.
+	 * 
+	 * @param jobName
+	 *            the name of the project
+	 * @param cache
+	 *            the {@link MetadataCache} to be saved
+	 * @throws Exception
+	 * @since 1.1
+	 */
+	public static void saveMetadataCache(String jobName, MetadataCache cache)
+			throws Exception {
+		FilePath cacheFile = FilePathUtils.getMetadataCacheFile(jobName);
+		JAXBContext context = JAXBContext.newInstance(MetadataCache.class);
+		Marshaller marshaller = context.createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+		synchronized (cache) {
+			if (!cache.isChanged()) {
+				return;
+			}
+			cacheFile.getParent().mkdirs();
+			marshaller.marshal(cache, new File(cacheFile.toURI()));
+			cache.setSaved();
+		}
+	}
+
+	/**
+	 * Used to read the metadata cache of a project from the disk.
+	 * 
+	 * @param jobName
+	 *            the name of the project
+	 * @return the {@link MetadataCache}, empty if there is no (readable)
+	 *         cache file
+	 * @throws Exception
+	 */
+	private static MetadataCache readMetadataCache(String jobName)
+			throws Exception {
+		FilePath cacheFile = FilePathUtils.getMetadataCacheFile(jobName);
+		if (cacheFile.exists()) {
+			try {
+				JAXBContext context = JAXBContext
+						.newInstance(MetadataCache.class);
+				Unmarshaller unmarshaller = context.createUnmarshaller();
+				return (MetadataCache) unmarshaller.unmarshal(new File(
+						cacheFile.toURI()));
+			} catch (JAXBException e) {
+				// a corrupted cache is simply rebuilt
+			}
+		}
+		return new MetadataCache();
+	}
+}
@@ -44,6 +44,7 @@ import jenkins.model.Jenkins;
 import org.apache.commons.lang.StringUtils;
 
 import com.bombardier.plugin.DTBuild;
+import com.bombardier.plugin.DTJob;
 
 /**
  * Used for file operations on the local and/or remote machines.
@@ -126,10 +127,21 @@ public class FilePathUtils {
 	 * @since 1.0
 	 */
 	public static FilePath getPathToMainTestList(AbstractBuild<?, ?> build) {
-		String pathToTestCaseList = ((DTBuild) build).getTestJob()
-				.getTestCaseList();
-		boolean isAbs = ((DTBuild) build).getTestJob()
-				.getTestListIsRelOrAbs().equals("1");
+		return getPathToMainTestList(((DTBuild) build).getTestJob());
+	}
+
+	/**
+	 * Used to get the path to the main Test case list of a project located on
+	 * the Master computer.
+	 * 
+	 * @param job
+	 *            the project
+	 * @return the path to the main test suite/list
+	 * @since 1.1
+	 */
+	public static FilePath getPathToMainTestList(DTJob job) {
+		String pathToTestCaseList = job.getTestCaseList();
+		boolean isAbs = job.getTestListIsRelOrAbs().equals("1");
 		if (isAbs) {
 			return new FilePath(new File(pathToTestCaseList).getAbsoluteFile());
 		} else {
@@ -138,7 +150,21 @@ public class FilePathUtils {
 	}
 
 	/**
-	 * Used to get the path to the project's workspace on the Slave.
+	 * Used to get the name of the folder separating the files of a build from
+	 * the ones of the concurrent builds of the same project.
+	 * 
+	 * @param build
+	 *            the current build
+	 * @return the folder name
+	 * @since 1.1
+	 */
+	public static String getBuildFolderName(AbstractBuild<?, ?> build) {
+		return String.valueOf(build.getNumber());
+	}
+
+	/**
+	 * Used to get the path to the build's folder in the project's workspace on
+	 * the Slave.
 	 * 
 	 * @param node
 	 *            the Slave
@@ -152,7 +178,11 @@ public class FilePathUtils {
 		FilePath workspace = null;
 		if (node != null && node.toComputer().isOnline()) {
 			workspace = new FilePath(node.getChannel(), node.getRootPath()
-					.getRemote() + "/workspace/" + build.getProject().getName());
+					.getRemote()
+					+ "/workspace/"
+					+ build.getProject().getName()
+					+ "/"
+					+ getBuildFolderName(build));
 		}
 		return workspace;
 	}
@@ -186,8 +216,8 @@ public class FilePathUtils {
 	}
 
 	/**
-	 * Used to get the path to the project's workspace in the test environment
-	 * on the Slave.
+	 * Used to get the path to the build's folder in the project's workspace in
+	 * the test environment on the Slave.
 	 * 
 	 * @param node
 	 *            the {@link Node}
@@ -213,14 +243,14 @@ public class FilePathUtils {
 		if (node != null && node.toComputer().isOnline()) {
 			workspace = new FilePath(node.getChannel(), getPathToTestEnvOnNode(
 					node, build).getRemote()
-					+ "/" + projectName);// getTestJob(build).getDisplayName()
+					+ "/" + projectName + "/" + getBuildFolderName(build));
 		}
 		return workspace;
 	}
 
 	/**
 	 * Used to get the path to the folder containing the temporary test case
-	 * lists.
+	 * lists of the build.
 	 * 
 	 * @param build
 	 *            the current build
@@ -228,7 +258,8 @@ public class FilePathUtils {
 	 * @since 1.0
 	 */
 	public static FilePath getPathToTempListsFolder(AbstractBuild<?, ?> build) {
-		return new FilePath(getPathToLocalProject(build), "/list/");
+		return new FilePath(getPathToLocalProject(build), "/list/"
+				+ getBuildFolderName(build) + "/");
 	}
 
 	/**
@@ -245,6 +276,33 @@ public class FilePathUtils {
 				((DTBuild) build).getTestJob().getName());
 	}
 
+	/**
+	 * Used to get the path to the file containing the cached schedule of the
+	 * project, located in the local Project folder.
+	 * 
+	 * @param build
+	 *            the current build
+	 * @return the path as {@link FilePath}
+	 * @since 1.1
+	 */
+	public static FilePath getScheduleCacheFile(AbstractBuild<?, ?> build) {
+		return new FilePath(getPathToLocalProject(build), "schedule-cache.xml");
+	}
+
+	/**
+	 * Used to get the path to the file containing the cached metadata of the
+	 * test files of the project, located in the local Project folder.
+	 * 
+	 * @param jobName
+	 *            the name of the project
+	 * @return the path as {@link FilePath}
+	 * @since 1.1
+	 */
+	public static FilePath getMetadataCacheFile(String jobName) {
+		return new FilePath(new FilePath(getPathToUserContent(), jobName),
+				"test-metadata.xml");
+	}
+
 	/**
 	 * Used to get the statistics file directly from the testing environment of
 	 * the Slave node.
@@ -463,9 +521,10 @@ public class FilePathUtils {
 	}
 
 	/**
-	 * Used to create Project folder if it doesn't exist in Jenkins workspace,
-	 * testing environment on a {@link Node} and one at the Master {@link Node}.
-	 * If they exist it will delete their contents. from previous builds.
+	 * Used to create the build's folders if they don't exist in Jenkins
+	 * workspace and testing environment on a {@link Node}. If they exist on
+	 * the {@link Node} it will delete their contents. The folders of the
+	 * concurrent builds of the project are left untouched.
 	 * 
 	 * @param node
 	 *            the node
@@ -483,7 +542,7 @@ public class FilePathUtils {
 		if (workspaceProject.exists()) {
 			workspaceProject.deleteContents();
 		} else {
-			// Create project folder under {Jenkins root}/workspace/
+			// Create build folder under {Jenkins root}/workspace/{project}/
 			createFoldersOnNode(node, workspaceProject.getRemote());
 		}
 
@@ -492,14 +551,77 @@ public class FilePathUtils {
 		if (testEnvProject.exists()) {
 			testEnvProject.deleteContents();
 		} else {
-			// Create project folder under {test environment}/
+			// Create build folder under {test environment}/{project}/
 			createFoldersOnNode(node, testEnvProject.getRemote());
 		}
+	}
 
+	/**
+	 * Used to delete the build's folders on a {@link Node}, once the testing
+	 * is over. The folder in the workspace of the building {@link Node} is
+	 * kept until the build completes (see
+	 * {@link #deleteBuildFolderFromWS(AbstractBuild)}), since its post-build
+	 * steps may read the collected statistics.
+	 * 
+	 * @param node
+	 *            the node
+	 * @param build
+	 *            the current build
+	 * @throws IOException
+	 * @throws InterruptedException
+	 * @since 1.1
+	 */
+	public static void deleteProjectFoldersOnNode(Node node,
+			AbstractBuild<?, ?> build) throws IOException, InterruptedException {
+		if (node != build.getBuiltOn()) {
+			FilePath workspaceProject = getPathToRootProjectWorkspaceOnNode(
+					node, build);
+			if (workspaceProject != null) {
+				workspaceProject.deleteRecursive();
+			}
+		}
+
+		FilePath testEnvProject = getPathToTestProjectWorkspaceOnNode(node,
+				build);
+		if (testEnvProject != null) {
+			testEnvProject.deleteRecursive();
+		}
+	}
+
+	/**
+	 * Used to delete the build's folder in the workspace of the building
+	 * {@link Node}, holding the collected statistics.
+	 * 
+	 * @param build
+	 *            the completed build
+	 * @throws IOException
+	 * @throws InterruptedException
+	 * @since 1.1
+	 */
+	public static void deleteBuildFolderFromWS(AbstractBuild<?, ?> build)
+			throws IOException, InterruptedException {
+		FilePath workspaceProject = getPathToRootProjectWorkspaceOnNode(
+				build.getBuiltOn(), build);
+		if (workspaceProject != null) {
+			workspaceProject.deleteRecursive();
+		}
+	}
+
+	/**
+	 * Used to create the Project folder at the Master, if it doesn't exist.
+	 * Its contents are kept between builds, since it holds the scheduling
+	 * caches.
+	 * 
+	 * @param build
+	 *            the current build
+	 * @throws IOException
+	 * @throws InterruptedException
+	 * @since 1.1
+	 */
+	public static void createProjectFolderOnMaster(AbstractBuild<?, ?> build)
+			throws IOException, InterruptedException {
 		FilePath localProject = getPathToLocalProject(build);
-		if (localProject.exists()) {
-			localProject.deleteContents();
-		} else {
+		if (!localProject.exists()) {
 			// Create project folder under {Jenkin's root}/userContent
 			createFoldersOnMaster(FilePathUtils.getPathToUserContent(),
 					((DTBuild) build).getTestJob().getName());
@@ -28,6 +28,7 @@ import hudson.FilePath;
 import hudson.model.Node;
 
 import java.io.File;
+import java.io.OutputStream;
 import java.util.List;
 
 import javax.xml.bind.JAXBContext;
@@ -78,7 +79,7 @@ public class HistoryAndStatsUtils {
 	 * @throws Exception
 	 * @since 1.0
 	 */
-	public static void addMultipleTestsToHistory(List<Test> tests, int maxSize)
+	public static synchronized void addMultipleTestsToHistory(List<Test> tests, int maxSize)
 			throws Exception {
 		FilePath historyFile = FilePathUtils.getHistoryFile();
 		JAXBContext context = JAXBContext.newInstance(History.class);
@@ -111,7 +112,7 @@ public class HistoryAndStatsUtils {
 	 * @throws Exception
 	 * @since 1.0
 	 */
-	public static void addSingleTestToHistory(Test test, int maxSize)
+	public static synchronized void addSingleTestToHistory(Test test, int maxSize)
 			throws Exception {
 		FilePath historyFile = FilePathUtils.getHistoryFile();
 		JAXBContext context = JAXBContext.newInstance(History.class);
@@ -145,4 +146,28 @@ public class HistoryAndStatsUtils {
 
 		return (TestSuites) unmarshaller.unmarshal(statisticsFile.read());
 	}
+
+	/**
+	 * Used to write test results in the format of the statistics files.
+	 * 
+	 * @param testSuites
+	 *            the test results as {@link TestSuites}
+	 * @param statisticsFile
+	 *            the file to be written as {@link FilePath}
+	 * @throws Exception
+	 * @since 1.1
+	 */
+	public static void saveTestResults(TestSuites testSuites,
+			FilePath statisticsFile) throws Exception {
+		JAXBContext context = JAXBContext.newInstance(TestSuites.class);
+		Marshaller marshaller = context.createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+
+		OutputStream out = statisticsFile.write();
+		try {
+			marshaller.marshal(testSuites, out);
+		} finally {
+			out.close();
+		}
+	}
 }
@@ -0,0 +1,147 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.bombardier.plugin.utils;
+
+import hudson.Util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Used to count the non blank lines of a file, and optionally compute the
+ * MD5 hash of its contents, in a single pass over its bytes. The file is read
+ * through a {@link FileChannel} into a reusable direct {@link ByteBuffer},
+ * so, apart from the buffer itself, nothing is allocated per file or per
+ * line.
+ * <br />
+ * A line is blank when it contains only ASCII white space characters. Both
+ * '\n' and '\r' terminate a line, like in {@link java.io.BufferedReader}. An
+ * instance is not thread-safe and shall be used by a single thread.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class LineCounter {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final ByteBuffer buffer;
+	private final MessageDigest digest;
+	private String hash;
+
+	/**
+	 * Used to initialize an instance of the {@link LineCounter}.
+	 * 
+	 * @param computeHash
+	 *            true if the hash of the contents shall be computed as well
+	 */
+	public LineCounter(boolean computeHash) {
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		try {
+			this.digest = computeHash ? MessageDigest.getInstance("MD5")
+					: null;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Used to count the lines of a file ignoring lines that are empty or
+	 * contain only white spaces.
+	 * 
+	 * @param path
+	 *            the file to be read
+	 * @return the number of non blank lines
+	 * @throws IOException
+	 * @since 1.1
+	 */
+	public int count(Path path) throws IOException {
+		// Nothing of a previous file, which failed to be read, is kept
+		hash = null;
+		if (digest != null) {
+			digest.reset();
+		}
+		int lines = 0;
+		boolean nonBlank = false;
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			buffer.clear();
+			while (channel.read(buffer) != -1) {
+				buffer.flip();
+				for (int i = buffer.position(), n = buffer.limit(); i < n; i++) {
+					byte b = buffer.get(i);
+					if (b == '\n' || b == '\r') {
+						if (nonBlank) {
+							lines++;
+							nonBlank = false;
+						}
+					} else if (!nonBlank && !isWhitespace(b)) {
+						nonBlank = true;
+					}
+				}
+				if (digest != null) {
+					digest.update(buffer);
+				}
+				buffer.clear();
+			}
+		} finally {
+			channel.close();
+		}
+		if (nonBlank) {
+			lines++;
+		}
+		hash = (digest != null) ? Util.toHexString(digest.digest()) : null;
+		return lines;
+	}
+
+	/**
+	 * Used to get the MD5 hash of the last counted file.
+	 * 
+	 * @return the hash as a hex string, or null if the hash is not computed
+	 *         or the file failed to be read
+	 * @since 1.1
+	 */
+	public String getHash() {
+		return hash;
+	}
+
+	/**
+	 * Used to check if a byte is an ASCII white space character, as defined
+	 * by {@link Character#isWhitespace(char)}.
+	 * 
+	 * @param b
+	 *            the byte
+	 * @return true if it's a white space
+	 */
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || (b >= 0x09 && b <= 0x0D) || (b >= 0x1C && b <= 0x1F);
+	}
+}
@@ -26,6 +26,7 @@ package com.bombardier.plugin.utils;
 
 import hudson.EnvVars;
 import hudson.model.AbstractBuild;
+import hudson.model.Computer;
 import hudson.model.Executor;
 import hudson.model.FreeStyleProject;
 import hudson.model.Label;
@@ -42,6 +43,7 @@ import com.bombardier.plugin.DTBuild;
 import com.bombardier.plugin.DTJob;
 import com.bombardier.plugin.misc.GenericEntry;
 import com.bombardier.plugin.misc.PrintMessages;
+import com.bombardier.plugin.reservation.NodeReservations;
 
 import jenkins.model.Jenkins;
 import jenkins.model.Jenkins.MasterComputer;
@@ -110,6 +112,27 @@ public class NodeUtils {
 		return nodes;
 	}
 
+	/**
+	 * Used to get the {@link Node}s in the {@link Label} of a {@link DTJob},
+	 * which are online, idle and not reserved by any build.
+	 * 
+	 * @param job
+	 *            the {@link DTJob}
+	 * @return a {@link Set} of the free {@link Node}s
+	 * @since 1.1
+	 */
+	public static Set<Node> getFreeNodes(DTJob job) {
+		Set<Node> nodes = new HashSet<Node>();
+		for (Node node : job.getAssignedLabel().getNodes()) {
+			Computer computer = node.toComputer();
+			if (computer != null && computer.isOnline() && computer.isIdle()
+					&& NodeReservations.getReservation(node) == null) {
+				nodes.add(node);
+			}
+		}
+		return nodes;
+	}
+
 	/**
 	 * Used define additional environment variable for a particular {@link Node}
 	 * .
@@ -130,7 +153,9 @@ public class NodeUtils {
 			String nodeTestEnv = ((DTBuild) build).getTestJob()
 					.getSlaveTestEnv();
 			String projectName = ((DTBuild) build).getTestJob()
-					.getDisplayName();
+					.getDisplayName()
+					+ "/"
+					+ FilePathUtils.getBuildFolderName(build);
 			EnvVars additionalEnvironment = new EnvVars();
 			additionalEnvironment.put("$TEST_ENV", nodeTestEnv + "/");
 			additionalEnvironment.put("$TEST_LIST", projectName + "/"
@@ -158,7 +183,10 @@ public class NodeUtils {
 	 * @throws IOException
 	 * @throws InterruptedException
 	 * @since 1.0
+	 * @deprecated since 1.1 the executors are reserved in memory by the
+	 *             {@link NodeReservations}
 	 */
+	@Deprecated
 	public static void deleteLockingProjects(final Set<Node> nodes,
 			final AbstractBuild<?, ?> build, PrintStream stream)
 			throws IOException, InterruptedException {
@@ -180,7 +208,10 @@ public class NodeUtils {
 	 * @throws IOException
 	 * @throws InterruptedException
 	 * @since 1.0
+	 * @deprecated since 1.1 the executors are reserved in memory by the
+	 *             {@link NodeReservations}
 	 */
+	@Deprecated
 	public static void deleteLockingProject(String lockProjectName,
 			PrintStream stream) throws IOException, InterruptedException {
 		for (@SuppressWarnings("rawtypes")
@@ -207,7 +238,10 @@ public class NodeUtils {
 	 * @param exec
 	 *            the node's executor
 	 * @return the name of the Locking Project
+	 * @deprecated since 1.1 the executors are reserved in memory by the
+	 *             {@link NodeReservations}
 	 */
+	@Deprecated
 	public static String getLockedProjectName(String mainProjectName,
 			Node node, Executor exec) {
 		return mainProjectName + "-Locking-" + node.getDisplayName()
@@ -0,0 +1,93 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.cache;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.bombardier.plugin.scheduling.EETEstimator;
+
+import org.junit.Test;
+
+/**
+ * Used to test when a {@link ScheduleCache} can be reused or repaired.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class ScheduleCacheTest {
+
+	@Test
+	public void cacheIsValidForItsFingerprint() {
+		ScheduleCache cache = createCache();
+		assertTrue(cache.isValidFor("abc"));
+		assertFalse(cache.isValidFor("abd"));
+	}
+
+	@Test
+	public void otherEstimatorVersionInvalidatesCache() {
+		ScheduleCache cache = createCache();
+		cache.setEstimatorVersion(EETEstimator.VERSION + 1);
+		assertFalse(cache.isValidFor("abc"));
+		assertFalse(cache.isRepairableFor(4));
+	}
+
+	@Test
+	public void cacheIsEstimatedWithItsHistory() {
+		ScheduleCache cache = createCache();
+		assertTrue(cache.isEstimatedWith("100:200"));
+		assertFalse(cache.isEstimatedWith("101:200"));
+	}
+
+	@Test
+	public void cacheWithoutHistoryStampIsNeverEstimatedWith() {
+		ScheduleCache cache = createCache();
+		cache.setHistoryStamp(null);
+		assertFalse(cache.isEstimatedWith("100:200"));
+	}
+
+	@Test
+	public void cacheIsRepairableForSameNumOfNodes() {
+		ScheduleCache cache = createCache();
+		assertTrue(cache.isRepairableFor(4));
+		assertFalse(cache.isRepairableFor(5));
+	}
+
+	@Test
+	public void cacheWithoutPacketsIsNotRepairable() {
+		ScheduleCache cache = createCache();
+		cache.getPackets().clear();
+		assertFalse(cache.isRepairableFor(4));
+	}
+
+	private static ScheduleCache createCache() {
+		ScheduleCache cache = new ScheduleCache();
+		cache.setFingerprint("abc");
+		cache.setHistoryStamp("100:200");
+		cache.setNumOfNodes(4);
+		cache.getPackets().add(new CachedPacket(0, 1.0, new int[] { 0 }));
+		return cache;
+	}
+}
@@ -0,0 +1,114 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.execution;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.bombardier.plugin.history.History;
+
+import org.junit.Test;
+
+/**
+ * Used to test the timeouts computed by {@link TestTimeouts}.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class TestTimeoutsTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void zeroMultiplierDisablesTimeouts() {
+		TestTimeouts timeouts = new TestTimeouts(history("a", 5), 0, 30);
+		assertFalse(timeouts.isEnabled());
+		assertEquals(0, timeouts.getTestTimeout("a", 10), DELTA);
+	}
+
+	@Test
+	public void singleRecordIsItsOwnPercentile() {
+		TestTimeouts timeouts = new TestTimeouts(history("a", 40), 2, 0);
+		assertTrue(timeouts.isEnabled());
+		assertEquals(80, timeouts.getTestTimeout("a", 1), DELTA);
+	}
+
+	@Test
+	public void percentileIsTakenByNearestRank() {
+		// 100 records 1..100: the 99th percentile is the 99th value
+		History history = new History();
+		for (int i = 100; i >= 1; i--) {
+			history.getTests().add(test("a", i));
+		}
+		TestTimeouts timeouts = new TestTimeouts(history, 1, 0);
+		assertEquals(99, timeouts.getTestTimeout("a", 0), DELTA);
+	}
+
+	@Test
+	public void percentileOfFewRecordsIsTheMaximum() {
+		TestTimeouts timeouts = new TestTimeouts(history("a", 3, "a", 9,
+				"a", 1), 1, 0);
+		assertEquals(9, timeouts.getTestTimeout("a", 0), DELTA);
+	}
+
+	@Test
+	public void namesAreCaseInsensitive() {
+		TestTimeouts timeouts = new TestTimeouts(history("Login", 10,
+				"LOGIN", 20), 1, 0);
+		assertEquals(20, timeouts.getTestTimeout("login", 0), DELTA);
+	}
+
+	@Test
+	public void eetIsUsedWithoutRecords() {
+		TestTimeouts timeouts = new TestTimeouts(history("a", 10), 3, 0);
+		assertEquals(15, timeouts.getTestTimeout("b", 5), DELTA);
+	}
+
+	@Test
+	public void floorIsTheMinimum() {
+		TestTimeouts timeouts = new TestTimeouts(history("a", 1), 2, 30);
+		assertEquals(30, timeouts.getTestTimeout("a", 0), DELTA);
+		assertEquals(30, timeouts.getTestTimeout("b", 0), DELTA);
+	}
+
+	private static History history(Object... namesAndTimes) {
+		History history = new History();
+		for (int i = 0; i < namesAndTimes.length; i += 2) {
+			history.getTests().add(
+					test((String) namesAndTimes[i],
+							((Number) namesAndTimes[i + 1]).doubleValue()));
+		}
+		return history;
+	}
+
+	private static com.bombardier.plugin.history.Test test(String name,
+			double executionTime) {
+		com.bombardier.plugin.history.Test test = new com.bombardier.plugin.history.Test();
+		test.setName(name);
+		test.setExecutionTime(executionTime);
+		return test;
+	}
+}
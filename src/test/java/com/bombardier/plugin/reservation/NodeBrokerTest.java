@@ -0,0 +1,68 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.reservation;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Used to test the fair share math of the {@link NodeBroker}.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class NodeBrokerTest {
+
+	@Test
+	public void aloneBuildGetsWholePool() {
+		assertEquals(10, NodeBroker.getFairShare(10, 1, 1));
+	}
+
+	@Test
+	public void equalWeightsSplitPoolEvenly() {
+		assertEquals(5, NodeBroker.getFairShare(10, 1, 2));
+		assertEquals(3, NodeBroker.getFairShare(10, 1, 3));
+	}
+
+	@Test
+	public void shareIsProportionalToWeight() {
+		assertEquals(9, NodeBroker.getFairShare(12, 3, 4));
+		assertEquals(3, NodeBroker.getFairShare(12, 1, 4));
+	}
+
+	@Test
+	public void shareIsRoundedDown() {
+		assertEquals(3, NodeBroker.getFairShare(7, 1, 2));
+	}
+
+	@Test
+	public void shareIsAtLeastTwoNodes() {
+		assertEquals(2, NodeBroker.getFairShare(10, 1, 10));
+		assertEquals(2, NodeBroker.getFairShare(10, 0.01, 100));
+		assertEquals(2, NodeBroker.getFairShare(1, 1, 1));
+		assertEquals(2, NodeBroker.getFairShare(0, 1, 1));
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.scheduling;
+
+import static org.junit.Assert.assertEquals;
+
+import com.bombardier.plugin.history.History;
+
+import org.junit.Test;
+
+/**
+ * Used to test the {@link EETEstimator}.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class EETEstimatorTest {
+
+	private static final long[] KEYS = { 10, 20, 40 };
+
+	@Test
+	public void exactKeyIsFound() {
+		assertEquals(0, EETEstimator.getClosestIndex(KEYS, 10));
+		assertEquals(1, EETEstimator.getClosestIndex(KEYS, 20));
+		assertEquals(2, EETEstimator.getClosestIndex(KEYS, 40));
+	}
+
+	@Test
+	public void outOfRangeNumbersTakeTheBounds() {
+		assertEquals(0, EETEstimator.getClosestIndex(KEYS, 0));
+		assertEquals(2, EETEstimator.getClosestIndex(KEYS, 1000));
+	}
+
+	@Test
+	public void closestKeyIsFound() {
+		assertEquals(0, EETEstimator.getClosestIndex(KEYS, 14));
+		assertEquals(1, EETEstimator.getClosestIndex(KEYS, 16));
+		assertEquals(1, EETEstimator.getClosestIndex(KEYS, 29));
+		assertEquals(2, EETEstimator.getClosestIndex(KEYS, 31));
+	}
+
+	@Test
+	public void tieTakesTheSmallerKey() {
+		assertEquals(0, EETEstimator.getClosestIndex(KEYS, 15));
+		assertEquals(1, EETEstimator.getClosestIndex(KEYS, 30));
+	}
+
+	@Test
+	public void singleKeyIsAlwaysClosest() {
+		long[] keys = { 5 };
+		assertEquals(0, EETEstimator.getClosestIndex(keys, 0));
+		assertEquals(0, EETEstimator.getClosestIndex(keys, 5));
+		assertEquals(0, EETEstimator.getClosestIndex(keys, 9));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void emptyHistoryCannotEstimate() {
+		new EETEstimator(new History()).estimate(10, 100);
+	}
+}
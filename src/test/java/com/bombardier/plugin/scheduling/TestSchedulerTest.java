@@ -0,0 +1,187 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.scheduling;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.bombardier.plugin.cache.CachedPacket;
+import com.bombardier.plugin.cache.CachedTest;
+import com.bombardier.plugin.cache.ScheduleCache;
+
+import org.junit.Test;
+
+/**
+ * Used to test the repair of a cached schedule by the {@link TestScheduler}.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class TestSchedulerTest {
+
+	private static final double DELTA = 1e-9;
+
+	@Test
+	public void unchangedListKeepsSchedule() {
+		ScheduleCache cache = createCache();
+		TestTable table = createTable("a", "b", "c", "d");
+		List<Integer> added = new ArrayList<Integer>();
+
+		assertEquals(0, TestScheduler.reconcileSchedule(cache, table, added));
+		assertEquals(0, added.size());
+		assertEquals(2, cache.getPackets().size());
+		assertArrayEquals(new int[] { 0, 3 }, cache.getPackets().get(0)
+				.getIndices());
+		assertArrayEquals(new int[] { 1, 2 }, cache.getPackets().get(1)
+				.getIndices());
+		assertEquals(4, table.getEET(3), DELTA);
+		assertEquals(40, table.getLines(3));
+	}
+
+	@Test
+	public void packetsFollowTheCurrentIndices() {
+		ScheduleCache cache = createCache();
+		TestTable table = createTable("d", "c", "b", "a");
+		List<Integer> added = new ArrayList<Integer>();
+
+		assertEquals(0, TestScheduler.reconcileSchedule(cache, table, added));
+		assertArrayEquals(new int[] { 3, 0 }, cache.getPackets().get(0)
+				.getIndices());
+		assertArrayEquals(new int[] { 2, 1 }, cache.getPackets().get(1)
+				.getIndices());
+		assertEquals(1, table.getEET(3), DELTA);
+	}
+
+	@Test
+	public void removedTestsAreTakenOut() {
+		ScheduleCache cache = createCache();
+		TestTable table = createTable("a", "b", "c");
+		List<Integer> added = new ArrayList<Integer>();
+
+		assertEquals(1, TestScheduler.reconcileSchedule(cache, table, added));
+		assertEquals(0, added.size());
+		assertArrayEquals(new int[] { 0 }, cache.getPackets().get(0)
+				.getIndices());
+		assertEquals(1, cache.getPackets().get(0).getTotalEET(), DELTA);
+	}
+
+	@Test
+	public void modifiedTestsAreReplaced() {
+		ScheduleCache cache = createCache();
+		TestTable table = createTable("a", "b", "c", "d");
+		table.setModified(1, 9999);
+		List<Integer> added = new ArrayList<Integer>();
+
+		assertEquals(1, TestScheduler.reconcileSchedule(cache, table, added));
+		assertEquals(Arrays.asList(1), added);
+		assertArrayEquals(new int[] { 2 }, cache.getPackets().get(1)
+				.getIndices());
+		assertEquals(3, cache.getPackets().get(1).getTotalEET(), DELTA);
+		assertEquals(TestTable.NOT_SCANNED, table.getLines(1));
+	}
+
+	@Test
+	public void emptyPacketsAreDropped() {
+		ScheduleCache cache = createCache();
+		TestTable table = createTable("a", "d", "e");
+		List<Integer> added = new ArrayList<Integer>();
+
+		assertEquals(2, TestScheduler.reconcileSchedule(cache, table, added));
+		assertEquals(Arrays.asList(2), added);
+		assertEquals(1, cache.getPackets().size());
+		assertArrayEquals(new int[] { 0, 1 }, cache.getPackets().get(0)
+				.getIndices());
+	}
+
+	@Test
+	public void longestTestsArePlacedInLightestPackets() {
+		ScheduleCache cache = createCache();
+		TestTable table = createTable("a", "b", "c", "d", "e", "f");
+		List<Integer> added = new ArrayList<Integer>();
+		TestScheduler.reconcileSchedule(cache, table, added);
+		assertEquals(Arrays.asList(4, 5), added);
+		table.setEET(4, 1);
+		table.setEET(5, 2);
+
+		// the packets are at 5 EET each, the longest goes to the first
+		TestScheduler.placeTests(cache, table, added);
+		assertArrayEquals(new int[] { 0, 3, 5 }, cache.getPackets().get(0)
+				.getIndices());
+		assertEquals(7, cache.getPackets().get(0).getTotalEET(), DELTA);
+		assertArrayEquals(new int[] { 1, 2, 4 }, cache.getPackets().get(1)
+				.getIndices());
+		assertEquals(6, cache.getPackets().get(1).getTotalEET(), DELTA);
+	}
+
+	@Test
+	public void packetTotalsFollowTheReestimatedEETs() {
+		ScheduleCache cache = createCache();
+		TestTable table = createTable("a", "b", "c", "d");
+		TestScheduler.reconcileSchedule(cache, table, new ArrayList<Integer>());
+		table.setEET(0, 1.5);
+		table.setEET(2, 0.25);
+
+		TestScheduler.updatePacketTotals(cache, table);
+		assertEquals(5.5, cache.getPackets().get(0).getTotalEET(), DELTA);
+		assertEquals(2.25, cache.getPackets().get(1).getTotalEET(), DELTA);
+		assertArrayEquals(new int[] { 0, 3 }, cache.getPackets().get(0)
+				.getIndices());
+	}
+
+	/**
+	 * Used to create a cache of the test cases a, b, c and d with EETs 1, 2,
+	 * 3 and 4 in the packets {a, d} and {b, c}.
+	 */
+	private static ScheduleCache createCache() {
+		ScheduleCache cache = new ScheduleCache();
+		String[] names = { "a", "b", "c", "d" };
+		for (int i = 0; i < names.length; i++) {
+			CachedTest test = new CachedTest(getPath(names[i]), i, i);
+			test.setLines((i + 1) * 10);
+			test.setEET(i + 1);
+			cache.getTests().add(test);
+		}
+		cache.getPackets().add(new CachedPacket(0, 5, new int[] { 0, 3 }));
+		cache.getPackets().add(new CachedPacket(0, 5, new int[] { 1, 2 }));
+		return cache;
+	}
+
+	private static TestTable createTable(String... names) {
+		TestTable table = new TestTable(null, names.length);
+		for (String name : names) {
+			long i = name.charAt(0) - 'a';
+			table.add(getPath(name), i, i);
+		}
+		return table;
+	}
+
+	private static String getPath(String name) {
+		return "/tests/" + name + ".txt";
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.scheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Used to test the sorting of the {@link TestTable}.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class TestTableTest {
+
+	@Test
+	public void emptyTableIsSorted() {
+		assertEquals(0, new TestTable(null, 0).getScannedSortedByEET().length);
+	}
+
+	@Test
+	public void smallTablesAreSorted() {
+		for (int size = 1; size <= 17; size++) {
+			assertSorted(createTable(size, new Random(size), false));
+		}
+	}
+
+	@Test
+	public void largeTablesAreSorted() {
+		assertSorted(createTable(1000, new Random(1), false));
+		assertSorted(createTable(5000, new Random(2), false));
+	}
+
+	@Test
+	public void duplicateEETsAreSorted() {
+		TestTable table = new TestTable(null, 500);
+		for (int i = 0; i < 500; i++) {
+			table.add("/tests/t" + i + ".txt", i, i);
+			table.setLines(i, 1);
+			table.setEET(i, i % 3);
+		}
+		assertSorted(table);
+	}
+
+	@Test
+	public void sortedAndReversedTablesAreSorted() {
+		TestTable sorted = new TestTable(null, 300);
+		TestTable reversed = new TestTable(null, 300);
+		for (int i = 0; i < 300; i++) {
+			sorted.add("/tests/t" + i + ".txt", i, i);
+			sorted.setLines(i, 1);
+			sorted.setEET(i, i);
+			reversed.add("/tests/t" + i + ".txt", i, i);
+			reversed.setLines(i, 1);
+			reversed.setEET(i, 300 - i);
+		}
+		assertSorted(sorted);
+		assertSorted(reversed);
+	}
+
+	@Test
+	public void unscannedTestsAreLeftOut() {
+		TestTable table = createTable(200, new Random(3), true);
+		int[] order = table.getScannedSortedByEET();
+		int scanned = 0;
+		for (int i = 0; i < table.size(); i++) {
+			if (table.isScanned(i)) {
+				scanned++;
+			}
+		}
+		assertEquals(scanned, order.length);
+		for (int index : order) {
+			assertTrue(table.isScanned(index));
+		}
+		assertSorted(table);
+	}
+
+	private static TestTable createTable(int size, Random random,
+			boolean withUnscanned) {
+		TestTable table = new TestTable(null, size);
+		for (int i = 0; i < size; i++) {
+			table.add("/tests/t" + i + ".txt", random.nextInt(10000), i);
+			if (!withUnscanned || random.nextInt(4) != 0) {
+				table.setLines(i, random.nextInt(500));
+				table.setEET(i, random.nextInt(1000) / 10.0);
+			}
+		}
+		return table;
+	}
+
+	private static void assertSorted(TestTable table) {
+		int[] order = table.getScannedSortedByEET();
+		for (int i = 1; i < order.length; i++) {
+			assertTrue(table.getEET(order[i - 1]) <= table.getEET(order[i]));
+		}
+		// Every scanned test case is there exactly once
+		int[] indexes = order.clone();
+		Arrays.sort(indexes);
+		for (int i = 1; i < indexes.length; i++) {
+			assertTrue(indexes[i - 1] < indexes[i]);
+		}
+	}
+}
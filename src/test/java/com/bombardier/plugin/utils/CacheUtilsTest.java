@@ -0,0 +1,105 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.bombardier.plugin.scheduling.TestTable;
+
+import org.junit.Test;
+
+/**
+ * Used to test the fingerprint of a test case list computed by the
+ * {@link CacheUtils}.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class CacheUtilsTest {
+
+	@Test
+	public void sameListHasSameFingerprint() throws Exception {
+		assertEquals(CacheUtils.getFingerprint(createTable(), 4),
+				CacheUtils.getFingerprint(createTable(), 4));
+	}
+
+	@Test
+	public void fingerprintDependsOnNumOfNodes() throws Exception {
+		assertFalse(CacheUtils.getFingerprint(createTable(), 4).equals(
+				CacheUtils.getFingerprint(createTable(), 5)));
+	}
+
+	@Test
+	public void fingerprintDependsOnPaths() throws Exception {
+		TestTable table = createTable();
+		table.add("/tests/d.txt", 40, 4000);
+		assertFalse(CacheUtils.getFingerprint(createTable(), 4).equals(
+				CacheUtils.getFingerprint(table, 4)));
+	}
+
+	@Test
+	public void fingerprintDependsOnOrder() throws Exception {
+		TestTable table = new TestTable(null, 3);
+		table.add("/tests/b.txt", 20, 2000);
+		table.add("/tests/a.txt", 10, 1000);
+		table.add("/tests/c.txt", 30, 3000);
+		assertFalse(CacheUtils.getFingerprint(createTable(), 4).equals(
+				CacheUtils.getFingerprint(table, 4)));
+	}
+
+	@Test
+	public void fingerprintDependsOnSizes() throws Exception {
+		TestTable table = createTable();
+		table.setBytes(1, 21);
+		assertFalse(CacheUtils.getFingerprint(createTable(), 4).equals(
+				CacheUtils.getFingerprint(table, 4)));
+	}
+
+	@Test
+	public void fingerprintDependsOnModificationTimes() throws Exception {
+		TestTable table = createTable();
+		table.setModified(2, 3001);
+		assertFalse(CacheUtils.getFingerprint(createTable(), 4).equals(
+				CacheUtils.getFingerprint(table, 4)));
+	}
+
+	@Test
+	public void fingerprintIgnoresScanResults() throws Exception {
+		TestTable table = createTable();
+		table.setLines(0, 12);
+		table.setEET(0, 3.5);
+		assertEquals(CacheUtils.getFingerprint(createTable(), 4),
+				CacheUtils.getFingerprint(table, 4));
+	}
+
+	private static TestTable createTable() {
+		TestTable table = new TestTable(null, 3);
+		table.add("/tests/a.txt", 10, 1000);
+		table.add("/tests/b.txt", 20, 2000);
+		table.add("/tests/c.txt", 30, 3000);
+		return table;
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * The MIT License (MIT)
+ * 
+ * Copyright (c) 2015 Bombardier, Bombardier Transportation SE
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bombardier.plugin.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import hudson.Util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Used to test the counting and hashing of the {@link LineCounter}.
+ * 
+ * @author <a href="mailto:samuil.dragnev@gmail.com">Samuil Dragnev</a>
+ * @since 1.1
+ */
+public class LineCounterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void emptyFileHasNoLines() throws Exception {
+		assertEquals(0, count(""));
+	}
+
+	@Test
+	public void lastLineWithoutTerminatorIsCounted() throws Exception {
+		assertEquals(1, count("a"));
+		assertEquals(2, count("a\nb"));
+	}
+
+	@Test
+	public void lineFeedsAreCounted() throws Exception {
+		assertEquals(3, count("a\nb\nc\n"));
+	}
+
+	@Test
+	public void carriageReturnsAreCounted() throws Exception {
+		assertEquals(3, count("a\rb\rc\r"));
+	}
+
+	@Test
+	public void windowsLineEndsAreCountedOnce() throws Exception {
+		assertEquals(3, count("a\r\nb\r\nc\r\n"));
+		assertEquals(2, count("a\r\n\r\nb"));
+	}
+
+	@Test
+	public void blankLinesAreNotCounted() throws Exception {
+		assertEquals(0, count("\n\n\r\n"));
+		assertEquals(0, count("  \t \n\f\u000b\n"));
+		assertEquals(2, count("a\n   \n\t\nb\n \n"));
+	}
+
+	@Test
+	public void linesAcrossBuffersAreCounted() throws Exception {
+		StringBuilder contents = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			contents.append("line ").append(i).append(i % 2 == 0 ? "\n" : "\r\n");
+			contents.append("   \n");
+		}
+		assertEquals(20000, count(contents.toString()));
+	}
+
+	@Test
+	public void hashIsTheMD5OfTheContents() throws Exception {
+		String contents = "first\r\nsecond\n";
+		LineCounter counter = new LineCounter(true);
+		counter.count(write("a.txt", contents));
+		assertEquals(md5(contents), counter.getHash());
+	}
+
+	@Test
+	public void hashIsComputedPerFile() throws Exception {
+		LineCounter counter = new LineCounter(true);
+		counter.count(write("a.txt", "a\n"));
+		String first = counter.getHash();
+		counter.count(write("b.txt", "b\n"));
+		assertEquals(md5("b\n"), counter.getHash());
+		counter.count(write("c.txt", "a\n"));
+		assertEquals(first, counter.getHash());
+	}
+
+	@Test
+	public void hashIsNotComputedIfNotRequired() throws Exception {
+		LineCounter counter = new LineCounter(false);
+		assertEquals(1, counter.count(write("a.txt", "a")));
+		assertNull(counter.getHash());
+	}
+
+	@Test
+	public void hashIsClearedIfReadingFails() throws Exception {
+		LineCounter counter = new LineCounter(true);
+		counter.count(write("a.txt", "a\n"));
+		assertNotNull(counter.getHash());
+		try {
+			counter.count(folder.getRoot().toPath().resolve("missing.txt"));
+			fail("The file does not exist");
+		} catch (IOException e) {
+			assertNull(counter.getHash());
+		}
+	}
+
+	private int count(String contents) throws IOException {
+		return new LineCounter(false).count(write("test.txt", contents));
+	}
+
+	private Path write(String name, String contents) throws IOException {
+		Path path = folder.getRoot().toPath().resolve(name);
+		Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+		return path;
+	}
+
+	private static String md5(String contents) throws Exception {
+		MessageDigest digest = MessageDigest.getInstance("MD5");
+		return Util.toHexString(digest.digest(contents
+				.getBytes(StandardCharsets.UTF_8)));
+	}
+}